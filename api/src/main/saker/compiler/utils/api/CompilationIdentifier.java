@@ -15,6 +15,7 @@
  */
 package saker.compiler.utils.api;
 
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -22,6 +23,9 @@ import java.util.Set;
 import saker.build.thirdparty.saker.util.ObjectUtils;
 import saker.build.thirdparty.saker.util.StringUtils;
 import saker.compiler.utils.impl.CompilationIdentifierImpl;
+import saker.compiler.utils.impl.IdentifierFingerprint;
+import saker.compiler.utils.impl.LazyCompilationIdentifier;
+import saker.compiler.utils.impl.MetricsSupport;
 
 /**
  * Interface for a compilation identifier that consists of dash separated lowercase name components.
@@ -83,6 +87,41 @@ public interface CompilationIdentifier {
 	@Override
 	public String toString();
 
+	/**
+	 * Converts the compilation identifier to a string representation that doesn't depend on the order of the name
+	 * parts.
+	 * <p>
+	 * Unlike {@link #toString()}, the result of this method is the same for all compilation identifiers that
+	 * {@linkplain #equals(Object) equal}. E.g. the identifiers <code>my-id</code> and <code>id-my</code> both have the
+	 * canonical string representation of <code>id-my</code>.
+	 * <p>
+	 * Defined as the {@linkplain #getParts() name parts} sorted in natural order and joined by the <code>'-'</code>
+	 * character.
+	 * 
+	 * @return The canonical string representation.
+	 */
+	public default String toCanonicalString() {
+		String[] parts = getParts().toArray(new String[0]);
+		Arrays.sort(parts);
+		return String.join("-", parts);
+	}
+
+	/**
+	 * Gets a 64-bit fingerprint of the compilation identifier.
+	 * <p>
+	 * The fingerprint doesn't depend on the order of the name parts, and is the same for all compilation identifiers
+	 * that {@linkplain #equals(Object) equal}. Unlike {@link #hashCode()}, the fingerprint is stable, it is the same on
+	 * all JVMs and versions of this library, therefore it can be persisted or transferred to other machines.
+	 * <p>
+	 * The fingerprint is suitable as a fixed size key for caches, but it should not be relied upon for
+	 * security-sensitive purposes. Different identifiers may have the same fingerprint, although it is very unlikely.
+	 * 
+	 * @return The fingerprint.
+	 */
+	public default long fingerprint() {
+		return IdentifierFingerprint.of(getParts());
+	}
+
 	/**
 	 * Creates a new compilation identifier by parsing the argument string.
 	 * <p>
@@ -101,12 +140,84 @@ public interface CompilationIdentifier {
 		return CompilationIdentifierImpl.valueOf(id);
 	}
 
+	/**
+	 * Creates a new compilation identifier by parsing the argument character sequence.
+	 * <p>
+	 * This method works the same way as {@link #valueOf(String)}, but doesn't require the input to be converted to a
+	 * {@link String} first.
+	 * 
+	 * @param id
+	 *            The input compilation identifier to parse.
+	 * @return The created compilation identifier.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the argument contains name parts with invalid characters, or no name parts are present.
+	 * @see #valueOf(String)
+	 */
+	public static CompilationIdentifier valueOf(CharSequence id) throws NullPointerException, IllegalArgumentException {
+		return CompilationIdentifierImpl.valueOf(id);
+	}
+
+	/**
+	 * Creates a new compilation identifier by parsing the characters in the specified range of the argument array.
+	 * <p>
+	 * This method works the same way as {@link #valueOf(String)}, but doesn't require the input to be converted to a
+	 * {@link String} first.
+	 * 
+	 * @param id
+	 *            The array of characters.
+	 * @param offset
+	 *            The offset of the first character to parse.
+	 * @param length
+	 *            The number of characters to parse.
+	 * @return The created compilation identifier.
+	 * @throws NullPointerException
+	 *             If the array is <code>null</code>.
+	 * @throws IndexOutOfBoundsException
+	 *             If the range is out of bounds for the array.
+	 * @throws IllegalArgumentException
+	 *             If the range contains name parts with invalid characters, or no name parts are present.
+	 * @see #valueOf(String)
+	 */
+	public static CompilationIdentifier valueOf(char[] id, int offset, int length)
+			throws NullPointerException, IndexOutOfBoundsException, IllegalArgumentException {
+		return CompilationIdentifierImpl.valueOf(id, offset, length);
+	}
+
+	/**
+	 * Creates a new compilation identifier for the argument string, deferring the creation of the name parts until
+	 * they're needed.
+	 * <p>
+	 * The argument is validated in the same way as {@link #valueOf(String)}, and the returned identifier behaves the
+	 * same way as the one returned by {@link #valueOf(String)}. However, if the argument is already in normalized
+	 * form, the name part set is only created when it is first required, e.g. by {@link #getParts()}, or when compared
+	 * to a differently ordered identifier. {@link #toString()} and {@link #hashCode()} don't require the parts.
+	 * <p>
+	 * This method can be used when the identifier is likely used only by its string representation.
+	 * 
+	 * @param id
+	 *            The string representation of the identifier.
+	 * @return The created compilation identifier.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the argument is not a valid compilation identifier.
+	 * @see #valueOf(String)
+	 */
+	public static CompilationIdentifier lazyValueOf(String id) throws NullPointerException, IllegalArgumentException {
+		return LazyCompilationIdentifier.valueOf(id);
+	}
+
 	/**
 	 * Clones the argument compilation identifier.
 	 * <p>
 	 * This method can be used to create a compilation identifier that is validated. As the
 	 * {@link CompilationIdentifier} interface may be implemented by others, it may be necessary to validate it by
 	 * creating a new instance. This can be used when you're working with compilation identifiers from external inputs.
+	 * <p>
+	 * If the argument was created by this library, it is already validated and immutable, so it is returned without
+	 * cloning.
 	 * 
 	 * @param clone
 	 *            The compilation identifier to clone.
@@ -119,18 +230,23 @@ public interface CompilationIdentifier {
 	public static CompilationIdentifier valueOf(CompilationIdentifier clone)
 			throws NullPointerException, IllegalArgumentException {
 		Objects.requireNonNull(clone, "clone");
+		if (clone instanceof CompilationIdentifierImpl || clone instanceof LazyCompilationIdentifier) {
+			//the implementations are final and immutable, and all of their construction paths validate the parts
+			return clone;
+		}
 		Set<String> nparts = new LinkedHashSet<>();
 		for (String p : Objects.requireNonNull(clone.getParts(), "clone identifier parts")) {
 			if (ObjectUtils.isNullOrEmpty(p)) {
 				//shouldn't happen, but other implementations can contain null parts
 				continue;
 			}
-			nparts.add(CompilationIdentifierImpl.toIdentifierPart(p));
+			nparts.add(p);
 		}
 		if (nparts.isEmpty()) {
 			throw new IllegalArgumentException("No name parts specified in the compilation identifier: " + clone);
 		}
-		return new CompilationIdentifierImpl(nparts);
+		//the parts are normalized and validated by intern
+		return CompilationIdentifierImpl.intern(nparts);
 	}
 
 	/**
@@ -155,24 +271,188 @@ public interface CompilationIdentifier {
 		if (first == null) {
 			return second;
 		}
-		Set<String> nparts = new LinkedHashSet<>();
-		for (String p : Objects.requireNonNull(first.getParts(), "first identifier parts")) {
-			if (ObjectUtils.isNullOrEmpty(p)) {
-				//shouldn't happen, but other implementations can contain null parts
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener != null) {
+			listener.identifiersConcatenated();
+		}
+		return builder().add(first).add(second).build();
+	}
+
+	/**
+	 * Concatenates the argument compilation identifiers.
+	 * <p>
+	 * The method will take the name parts of all arguments and create a new compilation identifier that contains the
+	 * union of them.
+	 * <p>
+	 * The <code>null</code> elements are ignored. If there's only one non-<code>null</code> argument, it is returned
+	 * without modification. If all of them are <code>null</code>, <code>null</code> is returned.
+	 * 
+	 * @param identifiers
+	 *            The identifiers to concatenate.
+	 * @return The concatenated identifier based on the arguments.
+	 * @throws NullPointerException
+	 *             If the argument array is <code>null</code>.
+	 * @see #concat(CompilationIdentifier, CompilationIdentifier)
+	 */
+	public static CompilationIdentifier concat(CompilationIdentifier... identifiers) throws NullPointerException {
+		Objects.requireNonNull(identifiers, "identifiers");
+		return concat(Arrays.asList(identifiers));
+	}
+
+	/**
+	 * Concatenates the compilation identifiers in the argument iterable.
+	 * <p>
+	 * The method will take the name parts of all elements and create a new compilation identifier that contains the
+	 * union of them.
+	 * <p>
+	 * The <code>null</code> elements are ignored. If there's only one non-<code>null</code> element, it is returned
+	 * without modification. If all of them are <code>null</code>, <code>null</code> is returned.
+	 * 
+	 * @param identifiers
+	 *            The identifiers to concatenate.
+	 * @return The concatenated identifier based on the arguments.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @see #concat(CompilationIdentifier, CompilationIdentifier)
+	 */
+	public static CompilationIdentifier concat(Iterable<? extends CompilationIdentifier> identifiers)
+			throws NullPointerException {
+		Objects.requireNonNull(identifiers, "identifiers");
+		CompilationIdentifier single = null;
+		Builder builder = null;
+		for (CompilationIdentifier id : identifiers) {
+			if (id == null) {
 				continue;
 			}
-			nparts.add(CompilationIdentifierImpl.toIdentifierPart(p));
+			if (builder != null) {
+				builder.add(id);
+			} else if (single == null) {
+				single = id;
+			} else {
+				builder = builder().add(single).add(id);
+			}
 		}
-		for (String p : Objects.requireNonNull(second.getParts(), "second identifier parts")) {
-			if (ObjectUtils.isNullOrEmpty(p)) {
-				continue;
+		if (builder == null) {
+			return single;
+		}
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener != null) {
+			listener.identifiersConcatenated();
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Creates a new builder for constructing a compilation identifier.
+	 * 
+	 * @return The new builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Builder class for creating a compilation identifier from the name parts of other identifiers.
+	 * <p>
+	 * The builder collects the union of the name parts of the added identifiers. If the parts of the subsequently added
+	 * identifiers are already present in the first added identifier, then the builder returns the first identifier
+	 * without creating a new one.
+	 */
+	public static final class Builder {
+		/**
+		 * The first added identifier if the parts of all other added identifiers are present in it.
+		 */
+		private CompilationIdentifierImpl source;
+		/**
+		 * The collected parts. <code>null</code> if there were no parts added, or {@link #source} contains all of
+		 * them.
+		 */
+		private Set<String> parts;
+
+		Builder() {
+		}
+
+		/**
+		 * Adds the name parts of the argument identifier to the builder.
+		 * <p>
+		 * If the argument is <code>null</code>, this method does nothing.
+		 * 
+		 * @param identifier
+		 *            The identifier.
+		 * @return <code>this</code>
+		 */
+		public Builder add(CompilationIdentifier identifier) {
+			if (identifier == null) {
+				return this;
+			}
+			CompilationIdentifierImpl impl = CompilationIdentifierImpl.toImpl(identifier);
+			if (impl != null) {
+				if (parts == null) {
+					if (source == null) {
+						source = impl;
+						return this;
+					}
+					if (source.containsAllParts(impl)) {
+						return this;
+					}
+					parts = new LinkedHashSet<>(source.getParts());
+					source = null;
+				}
+				//the parts are already normalized
+				parts.addAll(impl.getParts());
+				return this;
+			}
+			if (parts == null) {
+				parts = source == null ? new LinkedHashSet<>() : new LinkedHashSet<>(source.getParts());
+				source = null;
+			}
+			for (String p : Objects.requireNonNull(identifier.getParts(), "identifier parts")) {
+				if (ObjectUtils.isNullOrEmpty(p)) {
+					//shouldn't happen, but other implementations can contain null parts
+					continue;
+				}
+				parts.add(CompilationIdentifierImpl.toIdentifierPart(p));
 			}
-			nparts.add(CompilationIdentifierImpl.toIdentifierPart(p));
+			return this;
 		}
-		if (nparts.isEmpty()) {
-			throw new IllegalArgumentException(
-					"No name parts specified for the compilation identifier: " + first + " and " + second);
+
+		/**
+		 * Adds the name parts of all identifiers in the argument iterable to the builder.
+		 * <p>
+		 * The <code>null</code> elements are ignored.
+		 * 
+		 * @param identifiers
+		 *            The identifiers.
+		 * @return <code>this</code>
+		 * @throws NullPointerException
+		 *             If the argument is <code>null</code>.
+		 */
+		public Builder addAll(Iterable<? extends CompilationIdentifier> identifiers) throws NullPointerException {
+			Objects.requireNonNull(identifiers, "identifiers");
+			for (CompilationIdentifier id : identifiers) {
+				add(id);
+			}
+			return this;
+		}
+
+		/**
+		 * Creates the compilation identifier.
+		 * <p>
+		 * The builder can be reused after this call.
+		 * 
+		 * @return The created compilation identifier.
+		 * @throws IllegalArgumentException
+		 *             If no name parts were added to the builder, or an added identifier contains invalid parts.
+		 */
+		public CompilationIdentifier build() throws IllegalArgumentException {
+			if (parts == null) {
+				if (source != null) {
+					return source;
+				}
+			} else if (!parts.isEmpty()) {
+				return CompilationIdentifierImpl.intern(parts);
+			}
+			throw new IllegalArgumentException("No name parts specified for the compilation identifier.");
 		}
-		return new CompilationIdentifierImpl(nparts);
 	}
 }
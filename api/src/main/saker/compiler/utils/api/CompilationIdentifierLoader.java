@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import saker.compiler.utils.impl.CompilationIdentifierImpl;
+
+/**
+ * Loads multiple compilation identifiers from a delimiter separated input.
+ * <p>
+ * The loader parses the entries of the input that are separated by the specified delimiter character. The whitespace
+ * at the start and end of the entries is ignored, and empty entries are skipped. Malformed entries don't cause the
+ * loading to fail, but they are reported with their offsets in the {@linkplain Result result}.
+ * <p>
+ * Byte inputs are interpreted as single byte characters. As the compilation identifiers only consist of ASCII
+ * characters, this is appropriate for UTF-8 encoded inputs as well. Any non-ASCII characters are reported as errors.
+ * <p>
+ * A byte order mark at the start of the input is skipped. It is still counted in the error offsets.
+ * <p>
+ * The loader reuses its internal buffers between the load operations. It is not thread safe, and should not be used
+ * concurrently from multiple threads.
+ */
+public final class CompilationIdentifierLoader {
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+	private final char delimiter;
+
+	private char[] scratch = new char[64];
+	private CharBuffer scratchSequence = CharBuffer.wrap(scratch);
+	private char[] readBuffer;
+
+	/**
+	 * Creates a new loader for newline separated entries.
+	 * <p>
+	 * Both <code>\n</code> and <code>\r\n</code> line endings are accepted.
+	 */
+	public CompilationIdentifierLoader() {
+		this('\n');
+	}
+
+	/**
+	 * Creates a new loader for entries separated by the given delimiter.
+	 * 
+	 * @param delimiter
+	 *            The delimiter character.
+	 * @throws IllegalArgumentException
+	 *             If the delimiter can be part of an identifier.
+	 */
+	public CompilationIdentifierLoader(char delimiter) throws IllegalArgumentException {
+		if (delimiter == '-' || CompilationIdentifierImpl.isIdentifierPartChar(delimiter)) {
+			throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+		}
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Loads the identifiers from the argument reader.
+	 * <p>
+	 * The reader is read until the end of the stream is reached. The reader is not closed by this method. The error
+	 * offsets are the character offsets in the read stream.
+	 * 
+	 * @param reader
+	 *            The reader.
+	 * @return The result of the loading.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IOException
+	 *             In case of I/O error.
+	 */
+	public Result load(Reader reader) throws NullPointerException, IOException {
+		Objects.requireNonNull(reader, "reader");
+		char[] buf = readBuffer;
+		if (buf == null) {
+			buf = new char[READ_BUFFER_SIZE];
+			readBuffer = buf;
+		}
+		Result result = new Result();
+		long offset = 0;
+		long entrystart = 0;
+		int len = 0;
+		for (int read; (read = reader.read(buf)) > 0;) {
+			int i = 0;
+			if (offset == 0 && buf[0] == '\uFEFF') {
+				//byte order mark
+				i = 1;
+				entrystart = 1;
+			}
+			for (; i < read; i++) {
+				char c = buf[i];
+				if (c == delimiter) {
+					loadEntry(len, entrystart, result);
+					len = 0;
+					entrystart = offset + i + 1;
+				} else {
+					len = appendScratch(len, c);
+				}
+			}
+			offset += read;
+		}
+		loadEntry(len, entrystart, result);
+		return result;
+	}
+
+	/**
+	 * Loads the identifiers from the remaining bytes of the argument buffer.
+	 * <p>
+	 * The position of the buffer is not modified. The error offsets are relative to the position of the buffer.
+	 * 
+	 * @param buffer
+	 *            The buffer.
+	 * @return The result of the loading.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 */
+	public Result load(ByteBuffer buffer) throws NullPointerException {
+		Objects.requireNonNull(buffer, "buffer");
+		Result result = new Result();
+		int start = buffer.position();
+		int end = buffer.limit();
+		int entrystart = start;
+		if (end - start >= 3 && buffer.get(start) == (byte) 0xEF && buffer.get(start + 1) == (byte) 0xBB
+				&& buffer.get(start + 2) == (byte) 0xBF) {
+			//UTF-8 byte order mark
+			entrystart = start + 3;
+		}
+		int len = 0;
+		for (int i = entrystart; i < end; i++) {
+			char c = (char) (buffer.get(i) & 0xFF);
+			if (c == delimiter) {
+				loadEntry(len, entrystart - start, result);
+				len = 0;
+				entrystart = i + 1;
+			} else {
+				len = appendScratch(len, c);
+			}
+		}
+		loadEntry(len, entrystart - start, result);
+		return result;
+	}
+
+	/**
+	 * Loads the identifiers from the file at the given path.
+	 * <p>
+	 * The file is memory mapped, and read using {@link #load(ByteBuffer)}. The error offsets are the byte offsets in
+	 * the file.
+	 * 
+	 * @param file
+	 *            The path to the file.
+	 * @return The result of the loading.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IOException
+	 *             In case of I/O error, or if the file is too large to be mapped.
+	 */
+	public Result load(Path file) throws NullPointerException, IOException {
+		Objects.requireNonNull(file, "file");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large to load: " + file + " (" + size + " bytes)");
+			}
+			return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	private int appendScratch(int len, char c) {
+		if (len == scratch.length) {
+			scratch = Arrays.copyOf(scratch, len * 2);
+			scratchSequence = CharBuffer.wrap(scratch);
+		}
+		scratch[len] = c;
+		return len + 1;
+	}
+
+	private void loadEntry(int len, long offset, Result result) {
+		char[] scratch = this.scratch;
+		int start = 0;
+		int end = len;
+		while (start < end && Character.isWhitespace(scratch[start])) {
+			++start;
+		}
+		while (end > start && Character.isWhitespace(scratch[end - 1])) {
+			--end;
+		}
+		if (start == end) {
+			return;
+		}
+		CompilationIdentifier id;
+		try {
+			id = CompilationIdentifierImpl.valueOf(scratchSequence, start, end);
+		} catch (IllegalArgumentException e) {
+			result.errors.add(new LoadError(offset + start, new String(scratch, start, end - start), e.getMessage()));
+			return;
+		}
+		result.identifiers.add(id);
+	}
+
+	/**
+	 * The result of loading identifiers.
+	 */
+	public static final class Result {
+		final List<CompilationIdentifier> identifiers = new ArrayList<>();
+		final List<LoadError> errors = new ArrayList<>();
+
+		Result() {
+		}
+
+		/**
+		 * Gets the successfully loaded identifiers.
+		 * <p>
+		 * The identifiers are in the same order as they were in the input.
+		 * 
+		 * @return An unmodifiable list of identifiers.
+		 */
+		public List<CompilationIdentifier> getIdentifiers() {
+			return Collections.unmodifiableList(identifiers);
+		}
+
+		/**
+		 * Gets the errors that were encountered during loading.
+		 * 
+		 * @return An unmodifiable list of errors. Empty if there were no errors.
+		 */
+		public List<LoadError> getErrors() {
+			return Collections.unmodifiableList(errors);
+		}
+	}
+
+	/**
+	 * Describes a malformed entry in the loaded input.
+	 */
+	public static final class LoadError {
+		private final long offset;
+		private final String entry;
+		private final String message;
+
+		LoadError(long offset, String entry, String message) {
+			this.offset = offset;
+			this.entry = entry;
+			this.message = message;
+		}
+
+		/**
+		 * Gets the offset of the malformed entry in the input.
+		 * <p>
+		 * The offset points to the first non-whitespace character of the entry.
+		 * 
+		 * @return The offset.
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Gets the malformed entry without the surrounding whitespace.
+		 * 
+		 * @return The entry.
+		 */
+		public String getEntry() {
+			return entry;
+		}
+
+		/**
+		 * Gets the message describing the error.
+		 * 
+		 * @return The message.
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return offset + ": " + message;
+		}
+	}
+}
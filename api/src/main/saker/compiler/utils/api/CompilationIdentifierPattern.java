@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import saker.compiler.utils.impl.CompilationIdentifierImpl;
+
+/**
+ * Pattern that can be used in place of an options identifier to match multiple target identifiers.
+ * <p>
+ * A pattern consists of dash separated part patterns, similar to {@link CompilationIdentifier}. Each part pattern
+ * contains one or more alternatives separated by the <code>'|'</code> character. An alternative may contain
+ * <code>'*'</code> wildcards that match any number of characters. The patterns are normalized to lower-case
+ * representation.
+ * <p>
+ * A target identifier matches the pattern if for each part pattern, the target contains a part that matches any of its
+ * alternatives. This is the same semantics as
+ * {@link CompilerUtils#canMergeIdentifiers(CompilationIdentifier, CompilationIdentifier)} uses, so a pattern without
+ * wildcards and alternatives matches the same targets as the corresponding identifier.
+ * <p>
+ * Examples: <br>
+ * <code>debug-*</code> matches targets that contain the <code>debug</code> part. <br>
+ * <code>x86|x64-release</code> matches targets that contain the <code>release</code> part and either the
+ * <code>x86</code> or <code>x64</code> parts. <br>
+ * <code>lib*-release</code> matches targets that contain the <code>release</code> part, and a part that starts with
+ * <code>lib</code>.
+ * <p>
+ * Use {@link CompilerUtils#canMergeIdentifierPattern(CompilationIdentifier, CompilationIdentifierPattern)} to check
+ * if options with a pattern can be merged into a target. Multiple patterns can be compiled into a {@link Matcher} that
+ * tests a target against all of them at once.
+ */
+public final class CompilationIdentifierPattern {
+	/**
+	 * The alternatives for each part pattern.
+	 */
+	private final String[][] parts;
+	private final String stringValue;
+
+	private CompilationIdentifierPattern(String[][] parts, String stringValue) {
+		this.parts = parts;
+		this.stringValue = stringValue;
+	}
+
+	/**
+	 * Parses the argument pattern.
+	 * 
+	 * @param pattern
+	 *            The pattern string.
+	 * @return The parsed pattern.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the pattern is malformed.
+	 */
+	public static CompilationIdentifierPattern valueOf(String pattern)
+			throws NullPointerException, IllegalArgumentException {
+		Objects.requireNonNull(pattern, "pattern");
+		if (pattern.isEmpty()) {
+			throw new IllegalArgumentException("Empty pattern.");
+		}
+		List<String[]> parts = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (int start = 0, len = pattern.length(); start < len;) {
+			int end = pattern.indexOf('-', start);
+			if (end < 0) {
+				end = len;
+			}
+			if (end > start) {
+				String part = pattern.substring(start, end);
+				String[] alternatives = splitAlternatives(CompilationIdentifierImpl.toIdentifierPart(part));
+				for (String alt : alternatives) {
+					if (!isValidAlternative(alt)) {
+						throw new IllegalArgumentException("Illegal pattern part: " + part);
+					}
+				}
+				if (sb.length() > 0) {
+					sb.append('-');
+				}
+				sb.append(String.join("|", alternatives));
+				parts.add(alternatives);
+			}
+			start = end + 1;
+		}
+		if (parts.isEmpty()) {
+			throw new IllegalArgumentException("No name parts specified in the pattern: " + pattern);
+		}
+		return new CompilationIdentifierPattern(parts.toArray(new String[parts.size()][]), sb.toString());
+	}
+
+	/**
+	 * Checks if the argument identifier matches this pattern.
+	 * 
+	 * @param identifier
+	 *            The identifier.
+	 * @return <code>true</code> if the identifier matches.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 */
+	public boolean matches(CompilationIdentifier identifier) throws NullPointerException {
+		Set<String> idparts = identifier.getParts();
+		for (String[] alternatives : parts) {
+			if (!matchesAnyPart(alternatives, idparts)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compiles the argument patterns into a single matcher.
+	 * 
+	 * @param patterns
+	 *            The patterns.
+	 * @return The matcher.
+	 * @throws NullPointerException
+	 *             If the argument or any of the patterns are <code>null</code>.
+	 */
+	public static Matcher compile(Iterable<? extends CompilationIdentifierPattern> patterns)
+			throws NullPointerException {
+		Objects.requireNonNull(patterns, "patterns");
+		return new Matcher(patterns);
+	}
+
+	@Override
+	public int hashCode() {
+		return stringValue.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CompilationIdentifierPattern)) {
+			return false;
+		}
+		return stringValue.equals(((CompilationIdentifierPattern) obj).stringValue);
+	}
+
+	/**
+	 * Gets the normalized string representation of the pattern.
+	 */
+	@Override
+	public String toString() {
+		return stringValue;
+	}
+
+	private static boolean matchesAnyPart(String[] alternatives, Set<String> idparts) {
+		for (String alt : alternatives) {
+			if (alt.indexOf('*') < 0) {
+				if (idparts.contains(alt)) {
+					return true;
+				}
+				continue;
+			}
+			for (String p : idparts) {
+				if (globMatches(alt, p)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Splits the argument part at the <code>'|'</code> characters, keeping the empty alternatives.
+	 */
+	private static String[] splitAlternatives(String part) {
+		int count = 1;
+		for (int i = part.indexOf('|'); i >= 0; i = part.indexOf('|', i + 1)) {
+			++count;
+		}
+		String[] result = new String[count];
+		int start = 0;
+		for (int i = 0; i < count - 1; i++) {
+			int end = part.indexOf('|', start);
+			result[i] = part.substring(start, end);
+			start = end + 1;
+		}
+		result[count - 1] = part.substring(start);
+		return result;
+	}
+
+	private static boolean isValidAlternative(String alt) {
+		int len = alt.length();
+		if (len == 0) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			char c = alt.charAt(i);
+			if (c != '*' && !CompilationIdentifierImpl.isIdentifierPartChar(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean globMatches(String glob, String s) {
+		int gi = 0;
+		int si = 0;
+		int glen = glob.length();
+		int slen = s.length();
+		//the positions to backtrack to for the last wildcard
+		int stargi = -1;
+		int starsi = 0;
+		while (si < slen) {
+			if (gi < glen) {
+				char gc = glob.charAt(gi);
+				if (gc == '*') {
+					stargi = gi++;
+					starsi = si;
+					continue;
+				}
+				if (gc == s.charAt(si)) {
+					++gi;
+					++si;
+					continue;
+				}
+			}
+			if (stargi < 0) {
+				return false;
+			}
+			gi = stargi + 1;
+			si = ++starsi;
+		}
+		while (gi < glen && glob.charAt(gi) == '*') {
+			++gi;
+		}
+		return gi == glen;
+	}
+
+	/**
+	 * Matches target identifiers against multiple compiled patterns.
+	 * <p>
+	 * The literal alternatives of all patterns are looked up in a single hash table, and the wildcard alternatives are
+	 * tested once for each part of the target. The parts of the target are visited only once regardless of the number
+	 * of patterns.
+	 * <p>
+	 * Instances of this class are immutable and can be used concurrently.
+	 */
+	public static final class Matcher {
+		private final int patternCount;
+		/**
+		 * The first slot index for each pattern, and the total slot count as the last element.
+		 * <p>
+		 * Each part pattern of each pattern is assigned a slot. A pattern matches if all of its slots are satisfied.
+		 */
+		private final int[] slotStarts;
+		private final Map<String, int[]> literalSlots;
+		private final String[] globs;
+		private final int[] globSlots;
+
+		Matcher(Iterable<? extends CompilationIdentifierPattern> patterns) {
+			List<CompilationIdentifierPattern> patternlist = new ArrayList<>();
+			for (CompilationIdentifierPattern p : patterns) {
+				patternlist.add(Objects.requireNonNull(p, "pattern"));
+			}
+			this.patternCount = patternlist.size();
+			this.slotStarts = new int[patternCount + 1];
+			Map<String, List<Integer>> literals = new HashMap<>();
+			List<String> globs = new ArrayList<>();
+			List<Integer> globslots = new ArrayList<>();
+			int slot = 0;
+			for (int i = 0; i < patternCount; i++) {
+				slotStarts[i] = slot;
+				for (String[] alternatives : patternlist.get(i).parts) {
+					for (String alt : alternatives) {
+						if (alt.indexOf('*') < 0) {
+							literals.computeIfAbsent(alt, x -> new ArrayList<>()).add(slot);
+						} else {
+							globs.add(alt);
+							globslots.add(slot);
+						}
+					}
+					++slot;
+				}
+			}
+			slotStarts[patternCount] = slot;
+			this.literalSlots = new HashMap<>(literals.size() * 4 / 3 + 1);
+			for (Map.Entry<String, List<Integer>> entry : literals.entrySet()) {
+				literalSlots.put(entry.getKey(), toIntArray(entry.getValue()));
+			}
+			this.globs = globs.toArray(new String[globs.size()]);
+			this.globSlots = toIntArray(globslots);
+		}
+
+		/**
+		 * Gets the number of patterns in this matcher.
+		 * 
+		 * @return The pattern count.
+		 */
+		public int getPatternCount() {
+			return patternCount;
+		}
+
+		/**
+		 * Gets the patterns that match the argument identifier.
+		 * 
+		 * @param identifier
+		 *            The identifier.
+		 * @return The indices of the matching patterns in the order they were passed to
+		 *             {@link CompilationIdentifierPattern#compile(Iterable)}.
+		 * @throws NullPointerException
+		 *             If the argument is <code>null</code>.
+		 */
+		public BitSet match(CompilationIdentifier identifier) throws NullPointerException {
+			BitSet satisfied = new BitSet(slotStarts[patternCount]);
+			for (String part : identifier.getParts()) {
+				int[] slots = literalSlots.get(part);
+				if (slots != null) {
+					for (int s : slots) {
+						satisfied.set(s);
+					}
+				}
+				String[] globs = this.globs;
+				for (int i = 0; i < globs.length; i++) {
+					int s = globSlots[i];
+					if (!satisfied.get(s) && globMatches(globs[i], part)) {
+						satisfied.set(s);
+					}
+				}
+			}
+			BitSet result = new BitSet(patternCount);
+			for (int i = 0; i < patternCount; i++) {
+				int end = slotStarts[i + 1];
+				if (satisfied.nextClearBit(slotStarts[i]) >= end) {
+					result.set(i);
+				}
+			}
+			return result;
+		}
+
+		private static int[] toIntArray(List<Integer> list) {
+			int[] result = new int[list.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = list.get(i);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry for detecting compilation tasks that would use the same output location.
+ * <p>
+ * Tasks {@linkplain #register(CompilationIdentifier, Object) register} their compilation identifiers with an owner
+ * object that identifies the task. If a different owner already registered an identifier that maps to the same
+ * {@linkplain CompilerUtils#getOutputDirectoryName(CompilationIdentifier) output directory name}, the conflicting
+ * owner is reported. The owners are compared using {@link Object#equals(Object)}.
+ * <p>
+ * The registry can be used concurrently from multiple threads. It is usually created for a single build execution.
+ */
+public final class CompilationOutputRegistry {
+	private final ConcurrentHashMap<String, Object> owners = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new empty registry.
+	 */
+	public CompilationOutputRegistry() {
+	}
+
+	/**
+	 * Registers the output location of the argument identifier for the given owner.
+	 * <p>
+	 * If the output location is already registered by a different owner, the registry is not modified, and the
+	 * previous owner is returned.
+	 * 
+	 * @param identifier
+	 *            The compilation identifier.
+	 * @param owner
+	 *            The owner of the output location.
+	 * @return <code>null</code> if the registration succeeded, or the conflicting owner.
+	 * @throws NullPointerException
+	 *             If any of the arguments are <code>null</code>.
+	 */
+	public Object register(CompilationIdentifier identifier, Object owner) throws NullPointerException {
+		Objects.requireNonNull(owner, "owner");
+		Object prev = owners.putIfAbsent(CompilerUtils.getOutputDirectoryName(identifier), owner);
+		if (prev == null || prev.equals(owner)) {
+			return null;
+		}
+		return prev;
+	}
+
+	/**
+	 * Gets the owner of the output location of the argument identifier.
+	 * 
+	 * @param identifier
+	 *            The compilation identifier.
+	 * @return The owner or <code>null</code> if the output location is not registered.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 */
+	public Object getOwner(CompilationIdentifier identifier) throws NullPointerException {
+		return owners.get(CompilerUtils.getOutputDirectoryName(identifier));
+	}
+
+	/**
+	 * Removes the registration of the output location for the argument identifier if it is owned by the given owner.
+	 * 
+	 * @param identifier
+	 *            The compilation identifier.
+	 * @param owner
+	 *            The owner of the output location.
+	 * @return <code>true</code> if the registration was removed.
+	 * @throws NullPointerException
+	 *             If any of the arguments are <code>null</code>.
+	 */
+	public boolean unregister(CompilationIdentifier identifier, Object owner) throws NullPointerException {
+		Objects.requireNonNull(owner, "owner");
+		return owners.remove(CompilerUtils.getOutputDirectoryName(identifier), owner);
+	}
+}
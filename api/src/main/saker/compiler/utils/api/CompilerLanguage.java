@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import saker.compiler.utils.impl.WeakInterner;
+
+/**
+ * Represents a language that is associated with a compilation configuration.
+ * <p>
+ * The language names are compared in an ignore-case manner. Each language has a single canonical instance, that is
+ * retrieved using {@link #valueOf(String)}. Two languages equal if and only if they are the same instance, therefore
+ * comparing them is cheap.
+ * <p>
+ * Use {@link CompilerUtils#canMergeCompilerLanguages(CompilerLanguage, CompilerLanguage)} to check if options can be
+ * merged based on the languages.
+ */
+public final class CompilerLanguage implements Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The maximum number of different spellings to cache.
+	 */
+	private static final int MAX_SPELLING_CACHE_SIZE = 1024;
+
+	/**
+	 * The canonical language instances. They are held weakly, so arbitrary lookups don't accumulate.
+	 */
+	private static final WeakInterner<CompilerLanguage> LANGUAGES = new WeakInterner<>();
+	/**
+	 * Languages mapped by the names they were looked up with.
+	 */
+	private static final ConcurrentHashMap<String, CompilerLanguage> SPELLINGS = new ConcurrentHashMap<>();
+
+	private String name;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public CompilerLanguage() {
+	}
+
+	private CompilerLanguage(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the canonical language instance for the argument language name.
+	 * <p>
+	 * The names are compared in an ignore-case manner, the same way as {@link String#equalsIgnoreCase(String)}.
+	 * 
+	 * @param language
+	 *            The language name.
+	 * @return The canonical language instance.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the argument is empty.
+	 */
+	public static CompilerLanguage valueOf(String language) throws NullPointerException, IllegalArgumentException {
+		Objects.requireNonNull(language, "language");
+		CompilerLanguage result = SPELLINGS.get(language);
+		if (result != null) {
+			return result;
+		}
+		if (language.isEmpty()) {
+			throw new IllegalArgumentException("Empty language.");
+		}
+		result = LANGUAGES.intern(new CompilerLanguage(normalize(language)), l -> l);
+		if (SPELLINGS.size() < MAX_SPELLING_CACHE_SIZE) {
+			SPELLINGS.putIfAbsent(language, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the normalized name of the language.
+	 * <p>
+	 * The normalized name is in lowercase format.
+	 * 
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeUTF(name);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		String n = in.readUTF();
+		if (n.isEmpty()) {
+			throw new InvalidObjectException("Empty language.");
+		}
+		name = normalize(n);
+	}
+
+	private Object readResolve() {
+		return LANGUAGES.intern(this, l -> l);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		CompilerLanguage other = (CompilerLanguage) obj;
+		return name.equals(other.name);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private static String normalize(String language) {
+		char[] chars = language.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			//same as the comparison in String.equalsIgnoreCase
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+}
@@ -15,14 +15,27 @@
  */
 package saker.compiler.utils.api;
 
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.compiler.utils.impl.CompilationIdentifierImpl;
+import saker.compiler.utils.impl.IdentifierPartDictionary;
+import saker.compiler.utils.impl.LazyCompilationIdentifier;
+import saker.compiler.utils.impl.MetricsSupport;
 
 /**
  * Utility class containing functions for working with compiler related use-cases.
  */
 public class CompilerUtils {
+	/**
+	 * The number of target-options pairs above which the mergeability matrix is computed in parallel.
+	 */
+	private static final int PARALLEL_MATRIX_THRESHOLD = 1 << 16;
+
 	private CompilerUtils() {
 		throw new UnsupportedOperationException();
 	}
@@ -47,12 +60,28 @@ public class CompilerUtils {
 	 * @return <code>true</code> if the options can be merged based on the semantics specified by this method.
 	 */
 	public static boolean canMergeIdentifiers(CompilationIdentifier targetid, CompilationIdentifier optionsid) {
+		boolean result = canMergeIdentifiersImpl(targetid, optionsid);
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener != null) {
+			listener.identifiersMergeChecked(result);
+		}
+		return result;
+	}
+
+	private static boolean canMergeIdentifiersImpl(CompilationIdentifier targetid, CompilationIdentifier optionsid) {
 		if (optionsid == null) {
 			return true;
 		}
 		if (targetid == null) {
 			return false;
 		}
+		CompilationIdentifierImpl targetimpl = CompilationIdentifierImpl.toImpl(targetid);
+		if (targetimpl != null) {
+			CompilationIdentifierImpl optionsimpl = CompilationIdentifierImpl.toImpl(optionsid);
+			if (optionsimpl != null) {
+				return targetimpl.containsAllParts(optionsimpl);
+			}
+		}
 		Set<String> targetparts = targetid.getParts();
 		Set<String> otherparts = optionsid.getParts();
 		if (targetparts.containsAll(otherparts)) {
@@ -61,6 +90,42 @@ public class CompilerUtils {
 		return false;
 	}
 
+	/**
+	 * Checks if the target identifier matches the options identifier pattern.
+	 * <p>
+	 * This method is the same as {@link #canMergeIdentifiers(CompilationIdentifier, CompilationIdentifier)}, but the
+	 * options are identified by a {@linkplain CompilationIdentifierPattern pattern}.
+	 * <p>
+	 * The method examines the following, in this order: <br>
+	 * If <code>optionspattern</code> is <code>null</code>, <code>true</code> is returned. <br>
+	 * If <code>targetid</code> is <code>null</code>, <code>false</code> is returned. <br>
+	 * If <code>targetid</code> {@linkplain CompilationIdentifierPattern#matches(CompilationIdentifier) matches} the
+	 * <code>optionspattern</code>, then <code>true</code> is returned. <br>
+	 * Otherwise the result is <code>false</code>.
+	 * 
+	 * @param targetid
+	 *            The identifier of the target configuration in which the options are merged.
+	 * @param optionspattern
+	 *            The identifier pattern of the option configuration that is being merged.
+	 * @return <code>true</code> if the options can be merged based on the semantics specified by this method.
+	 */
+	public static boolean canMergeIdentifierPattern(CompilationIdentifier targetid,
+			CompilationIdentifierPattern optionspattern) {
+		boolean result;
+		if (optionspattern == null) {
+			result = true;
+		} else if (targetid == null) {
+			result = false;
+		} else {
+			result = optionspattern.matches(targetid);
+		}
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener != null) {
+			listener.identifiersMergeChecked(result);
+		}
+		return result;
+	}
+
 	/**
 	 * Checks if the configurations can be merged for the argument languages.
 	 * <p>
@@ -83,6 +148,15 @@ public class CompilerUtils {
 	 * @return <code>true</code> if the options can be merged based on the semantics specified by this method.
 	 */
 	public static boolean canMergeLanguages(String targetlang, String optionslang) {
+		boolean result = canMergeLanguagesImpl(targetlang, optionslang);
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener != null) {
+			listener.languagesMergeChecked(result);
+		}
+		return result;
+	}
+
+	private static boolean canMergeLanguagesImpl(String targetlang, String optionslang) {
 		if (ObjectUtils.isNullOrEmpty(optionslang)) {
 			//options are not language specialized, it can be merged based on the identifier
 			return true;
@@ -93,6 +167,238 @@ public class CompilerUtils {
 			return false;
 		}
 		//both have languages, check them for ignore case equality
-		return targetlang.equalsIgnoreCase(optionslang);
+		return CompilerLanguage.valueOf(targetlang) == CompilerLanguage.valueOf(optionslang);
+	}
+
+	/**
+	 * Checks if the configurations can be merged for the argument languages.
+	 * <p>
+	 * This method works the same way as {@link #canMergeLanguages(String, String)}, but takes the
+	 * {@linkplain CompilerLanguage canonical language instances} as arguments.
+	 * <p>
+	 * The method examines the following, in this order: <br>
+	 * If <code>optionslang</code> is <code>null</code>, <code>true</code> is returned. <br>
+	 * If <code>targetlang</code> is <code>null</code>, <code>false</code> is returned. <br>
+	 * If <code>targetlang</code> is the same as <code>optionslang</code>, then <code>true</code> is returned. <br>
+	 * Otherwise the result is <code>false</code>.
+	 * 
+	 * @param targetlang
+	 *            The language of the target configuration in which the options are merged.
+	 * @param optionslang
+	 *            The language of the option configuration that is being merged.
+	 * @return <code>true</code> if the options can be merged based on the semantics specified by this method.
+	 */
+	public static boolean canMergeCompilerLanguages(CompilerLanguage targetlang, CompilerLanguage optionslang) {
+		boolean result = canMergeLanguagesImpl(targetlang, optionslang);
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener != null) {
+			listener.languagesMergeChecked(result);
+		}
+		return result;
+	}
+
+	private static boolean canMergeLanguagesImpl(CompilerLanguage targetlang, CompilerLanguage optionslang) {
+		if (optionslang == null) {
+			return true;
+		}
+		if (targetlang == null) {
+			return false;
+		}
+		return targetlang == optionslang;
+	}
+
+	/**
+	 * Gets the most commonly used identifier name parts that start with the given prefix.
+	 * <p>
+	 * The library keeps track of the name parts of the compilation identifiers that are in use in the current JVM, and
+	 * how many different identifiers use them. The tracking starts when this method is first called, the identifiers
+	 * created before that are not counted. This method can be used to provide completion proposals for identifiers.
+	 * <p>
+	 * The result is ordered by the usage of the parts in descending order. The usage counts are approximate.
+	 * 
+	 * @param prefix
+	 *            The prefix of the parts. The prefix is normalized to lower-case representation.
+	 * @param maxcount
+	 *            The maximum number of parts to return.
+	 * @return The list of name parts.
+	 * @throws NullPointerException
+	 *             If the prefix is <code>null</code>.
+	 */
+	public static List<String> getIdentifierPartSuggestions(String prefix, int maxcount) throws NullPointerException {
+		Objects.requireNonNull(prefix, "prefix");
+		return IdentifierPartDictionary.getMostUsedParts(CompilationIdentifierImpl.toIdentifierPart(prefix), maxcount);
+	}
+
+	/**
+	 * Gets a name for the argument compilation identifier that can be used as a directory name for the outputs of the
+	 * associated task.
+	 * <p>
+	 * The result doesn't depend on the order of the name parts in the identifier, therefore equal identifiers are
+	 * mapped to the same name. Different identifiers are mapped to different names. The name is safe to be used as a
+	 * file name on the common file systems.
+	 * <p>
+	 * The name is based on the {@linkplain CompilationIdentifier#toCanonicalString() canonical string representation}
+	 * of the identifier, with additional escaping if necessary. Names longer than 255 characters are truncated and
+	 * suffixed with the hexadecimal {@linkplain CompilationIdentifier#fingerprint() fingerprint} of the identifier. The
+	 * result is cached by the identifiers created by this library.
+	 * <p>
+	 * Identifiers implemented by others are {@linkplain CompilationIdentifier#valueOf(CompilationIdentifier)
+	 * validated} first.
+	 * 
+	 * @param identifier
+	 *            The compilation identifier.
+	 * @return The output directory name.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the argument is not a valid compilation identifier.
+	 * @see CompilationOutputRegistry
+	 */
+	public static String getOutputDirectoryName(CompilationIdentifier identifier)
+			throws NullPointerException, IllegalArgumentException {
+		Objects.requireNonNull(identifier, "identifier");
+		if (identifier instanceof LazyCompilationIdentifier) {
+			return ((LazyCompilationIdentifier) identifier).getOutputDirectoryName();
+		}
+		CompilationIdentifierImpl impl = CompilationIdentifierImpl.toImpl(identifier);
+		if (impl == null) {
+			impl = CompilationIdentifierImpl.toImpl(CompilationIdentifier.valueOf(identifier));
+		}
+		return impl.getOutputDirectoryName();
+	}
+
+	/**
+	 * Computes the mergeability of the argument target and options identifiers.
+	 * <p>
+	 * Same as calling {@link #computeMergeabilityMatrix(List, List, List, List)} with <code>null</code> language lists.
+	 * 
+	 * @param targetids
+	 *            The identifiers of the target configurations.
+	 * @param optionsids
+	 *            The identifiers of the option configurations.
+	 * @return The computed mergeability matrix.
+	 * @throws NullPointerException
+	 *             If any of the arguments are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the matrix would be too large to be stored.
+	 * @see #computeMergeabilityMatrix(List, List, List, List)
+	 */
+	public static MergeabilityMatrix computeMergeabilityMatrix(List<? extends CompilationIdentifier> targetids,
+			List<? extends CompilationIdentifier> optionsids) throws NullPointerException, IllegalArgumentException {
+		return computeMergeabilityMatrix(targetids, null, optionsids, null);
+	}
+
+	/**
+	 * Computes the mergeability relation between the argument target and option configurations.
+	 * <p>
+	 * The method computes the result of
+	 * {@link #canMergeIdentifiers(CompilationIdentifier, CompilationIdentifier) canMergeIdentifiers} and
+	 * {@link #canMergeLanguages(String, String) canMergeLanguages} for all target and options pairs. The options at
+	 * index <code>o</code> can be merged into the target at index <code>t</code> if and only if both of the methods
+	 * return <code>true</code> for the identifiers and languages at the given indices.
+	 * <p>
+	 * The language lists may be <code>null</code>, in which case all configurations are considered to have
+	 * <code>null</code> language. If not <code>null</code>, they must have the same size as the corresponding
+	 * identifier list.
+	 * <p>
+	 * If there are many targets and options, the computation is split up and performed in parallel using the common
+	 * {@link ForkJoinPool}.
+	 * 
+	 * @param targetids
+	 *            The identifiers of the target configurations. The elements may be <code>null</code>.
+	 * @param targetlangs
+	 *            The languages of the target configurations or <code>null</code>.
+	 * @param optionsids
+	 *            The identifiers of the option configurations. The elements may be <code>null</code>.
+	 * @param optionslangs
+	 *            The languages of the option configurations or <code>null</code>.
+	 * @return The computed mergeability matrix.
+	 * @throws NullPointerException
+	 *             If any of the identifier lists are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If a language list has different size than the corresponding identifier list, or the matrix would
+	 *             be too large to be stored.
+	 */
+	public static MergeabilityMatrix computeMergeabilityMatrix(List<? extends CompilationIdentifier> targetids,
+			List<String> targetlangs, List<? extends CompilationIdentifier> optionsids, List<String> optionslangs)
+			throws NullPointerException, IllegalArgumentException {
+		Objects.requireNonNull(targetids, "target identifiers");
+		Objects.requireNonNull(optionsids, "options identifiers");
+		if (targetlangs != null && targetlangs.size() != targetids.size()) {
+			throw new IllegalArgumentException("Target languages size mismatch: " + targetlangs.size()
+					+ " for target identifier count: " + targetids.size());
+		}
+		if (optionslangs != null && optionslangs.size() != optionsids.size()) {
+			throw new IllegalArgumentException("Options languages size mismatch: " + optionslangs.size()
+					+ " for options identifier count: " + optionsids.size());
+		}
+		CompilationIdentifier[] targets = targetids.toArray(new CompilationIdentifier[targetids.size()]);
+		CompilationIdentifier[] options = optionsids.toArray(new CompilationIdentifier[optionsids.size()]);
+		String[] tlangs = targetlangs == null ? new String[targets.length]
+				: targetlangs.toArray(new String[targets.length]);
+		String[] olangs = optionslangs == null ? new String[options.length]
+				: optionslangs.toArray(new String[options.length]);
+
+		MergeabilityMatrix result = new MergeabilityMatrix(targets.length, options.length);
+		MatrixComputeAction action = new MatrixComputeAction(result, targets, tlangs, options, olangs, 0,
+				targets.length);
+		if ((long) targets.length * options.length >= PARALLEL_MATRIX_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(action);
+		} else {
+			action.computeDirectly();
+		}
+		return result;
+	}
+
+	private static final class MatrixComputeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final MergeabilityMatrix matrix;
+		private final CompilationIdentifier[] targets;
+		private final String[] targetLanguages;
+		private final CompilationIdentifier[] options;
+		private final String[] optionsLanguages;
+		private final int start;
+		private final int end;
+
+		public MatrixComputeAction(MergeabilityMatrix matrix, CompilationIdentifier[] targets,
+				String[] targetLanguages, CompilationIdentifier[] options, String[] optionsLanguages, int start,
+				int end) {
+			this.matrix = matrix;
+			this.targets = targets;
+			this.targetLanguages = targetLanguages;
+			this.options = options;
+			this.optionsLanguages = optionsLanguages;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1 && (long) (end - start) * options.length > PARALLEL_MATRIX_THRESHOLD) {
+				int mid = (start + end) >>> 1;
+				invokeAll(
+						new MatrixComputeAction(matrix, targets, targetLanguages, options, optionsLanguages, start,
+								mid),
+						new MatrixComputeAction(matrix, targets, targetLanguages, options, optionsLanguages, mid,
+								end));
+				return;
+			}
+			computeDirectly();
+		}
+
+		public void computeDirectly() {
+			//each target has its own row in the matrix, so the rows can be written concurrently
+			for (int t = start; t < end; t++) {
+				CompilationIdentifier targetid = targets[t];
+				String targetlang = targetLanguages[t];
+				for (int o = 0; o < options.length; o++) {
+					if (canMergeIdentifiers(targetid, options[o])
+							&& canMergeLanguages(targetlang, optionsLanguages[o])) {
+						matrix.set(t, o);
+					}
+				}
+			}
+		}
 	}
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import saker.compiler.utils.impl.CompilerUtilsStatistics;
+import saker.compiler.utils.impl.MetricsSupport;
+
+/**
+ * Utility class for collecting metrics about the operations performed by this library.
+ * <p>
+ * Metrics collection is disabled by default. It is enabled when a {@linkplain CompilerUtilsMetricsListener listener}
+ * is added, or the {@linkplain CompilerUtilsStatisticsMXBean statistics MBean} is registered. When there are no
+ * listeners, the instrumented operations only perform a single field read for the metrics.
+ */
+public final class CompilerUtilsMetrics {
+	private static final List<CompilerUtilsMetricsListener> LISTENERS = new ArrayList<>();
+	private static CompilerUtilsStatistics statistics;
+
+	private CompilerUtilsMetrics() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Adds a metrics listener.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 */
+	public static void addListener(CompilerUtilsMetricsListener listener) throws NullPointerException {
+		Objects.requireNonNull(listener, "listener");
+		synchronized (LISTENERS) {
+			LISTENERS.add(listener);
+			MetricsSupport.setListeners(LISTENERS);
+		}
+	}
+
+	/**
+	 * Removes a previously added metrics listener.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 * @return <code>true</code> if the listener was removed.
+	 */
+	public static boolean removeListener(CompilerUtilsMetricsListener listener) {
+		synchronized (LISTENERS) {
+			if (!LISTENERS.remove(listener)) {
+				return false;
+			}
+			MetricsSupport.setListeners(LISTENERS);
+			return true;
+		}
+	}
+
+	/**
+	 * Registers the statistics MBean in the platform MBean server.
+	 * <p>
+	 * The MBean is registered with the name {@link CompilerUtilsStatisticsMXBean#OBJECT_NAME}, and starts collecting
+	 * the statistics. If the MBean is already registered by this class, this method does nothing.
+	 * 
+	 * @return The statistics MBean.
+	 * @throws JMException
+	 *             If the registration fails.
+	 */
+	public static CompilerUtilsStatisticsMXBean registerMBean() throws JMException {
+		synchronized (LISTENERS) {
+			if (statistics != null) {
+				return statistics;
+			}
+			CompilerUtilsStatistics stats = new CompilerUtilsStatistics();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(stats, new ObjectName(CompilerUtilsStatisticsMXBean.OBJECT_NAME));
+			statistics = stats;
+			addListener(stats);
+			return stats;
+		}
+	}
+
+	/**
+	 * Unregisters the statistics MBean that was previously registered using {@link #registerMBean()}.
+	 * 
+	 * @throws JMException
+	 *             If the unregistration fails.
+	 */
+	public static void unregisterMBean() throws JMException {
+		synchronized (LISTENERS) {
+			if (statistics == null) {
+				return;
+			}
+			removeListener(statistics);
+			statistics = null;
+			try {
+				ManagementFactory.getPlatformMBeanServer()
+						.unregisterMBean(new ObjectName(CompilerUtilsStatisticsMXBean.OBJECT_NAME));
+			} catch (InstanceNotFoundException e) {
+				//unregistered by someone else
+			}
+		}
+	}
+}
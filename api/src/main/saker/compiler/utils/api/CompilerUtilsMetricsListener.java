@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+/**
+ * Listener interface for receiving information about the operations performed by this library.
+ * <p>
+ * The listeners can be installed using {@link CompilerUtilsMetrics#addListener(CompilerUtilsMetricsListener)}. The
+ * methods are called synchronously on the thread that performs the operation, therefore implementations should return
+ * quickly. The methods may be called concurrently from multiple threads.
+ * <p>
+ * All methods have a default implementation that does nothing.
+ * <p>
+ * This interface may be implemented by clients.
+ */
+public interface CompilerUtilsMetricsListener {
+	/**
+	 * Called when a compilation identifier was successfully parsed from its string representation.
+	 * 
+	 * @param nanos
+	 *            The time it took to parse the identifier in nanoseconds.
+	 */
+	public default void identifierParsed(long nanos) {
+	}
+
+	/**
+	 * Called when a compilation identifier failed to be parsed due to being invalid.
+	 */
+	public default void identifierParseFailed() {
+	}
+
+	/**
+	 * Called when compilation identifiers are concatenated.
+	 */
+	public default void identifiersConcatenated() {
+	}
+
+	/**
+	 * Called when the mergeability of compilation identifiers is checked.
+	 * 
+	 * @param result
+	 *            The result of the check.
+	 * @see CompilerUtils#canMergeIdentifiers(CompilationIdentifier, CompilationIdentifier)
+	 */
+	public default void identifiersMergeChecked(boolean result) {
+	}
+
+	/**
+	 * Called when the mergeability of languages is checked.
+	 * 
+	 * @param result
+	 *            The result of the check.
+	 * @see CompilerUtils#canMergeLanguages(String, String)
+	 * @see CompilerUtils#canMergeCompilerLanguages(CompilerLanguage, CompilerLanguage)
+	 */
+	public default void languagesMergeChecked(boolean result) {
+	}
+
+	/**
+	 * Called when a compilation identifier is written to an object stream.
+	 * <p>
+	 * The byte count is the size of the serialized data without any stream level compression or deduplication.
+	 * Streams may write less data.
+	 * 
+	 * @param bytes
+	 *            The number of bytes.
+	 */
+	public default void identifierSerialized(int bytes) {
+	}
+}
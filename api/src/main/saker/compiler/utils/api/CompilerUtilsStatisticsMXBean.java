@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+/**
+ * Management interface for the statistics of the operations performed by this library.
+ * <p>
+ * The statistics are collected after the MBean is registered using {@link CompilerUtilsMetrics#registerMBean()}.
+ */
+public interface CompilerUtilsStatisticsMXBean {
+	/**
+	 * The object name that the MBean is registered with.
+	 */
+	public static final String OBJECT_NAME = "saker.compiler.utils:type=CompilerUtilsStatistics";
+
+	/**
+	 * Gets the number of successfully parsed compilation identifiers.
+	 * 
+	 * @return The count.
+	 */
+	public long getIdentifierParseCount();
+
+	/**
+	 * Gets the total time spent parsing compilation identifiers in nanoseconds.
+	 * 
+	 * @return The nanoseconds.
+	 */
+	public long getIdentifierParseNanos();
+
+	/**
+	 * Gets the number of compilation identifiers that failed to parse.
+	 * 
+	 * @return The count.
+	 */
+	public long getIdentifierParseFailureCount();
+
+	/**
+	 * Gets the number of compilation identifier concatenations.
+	 * 
+	 * @return The count.
+	 */
+	public long getIdentifierConcatenationCount();
+
+	/**
+	 * Gets the number of compilation identifier mergeability checks.
+	 * 
+	 * @return The count.
+	 */
+	public long getIdentifierMergeCheckCount();
+
+	/**
+	 * Gets the number of compilation identifier mergeability checks that returned <code>true</code>.
+	 * 
+	 * @return The count.
+	 */
+	public long getIdentifierMergeHitCount();
+
+	/**
+	 * Gets the number of language mergeability checks.
+	 * 
+	 * @return The count.
+	 */
+	public long getLanguageMergeCheckCount();
+
+	/**
+	 * Gets the number of language mergeability checks that returned <code>true</code>.
+	 * 
+	 * @return The count.
+	 */
+	public long getLanguageMergeHitCount();
+
+	/**
+	 * Gets the number of compilation identifiers written to object streams.
+	 * 
+	 * @return The count.
+	 */
+	public long getSerializedIdentifierCount();
+
+	/**
+	 * Gets the total number of bytes of the compilation identifiers written to object streams.
+	 * 
+	 * @return The byte count.
+	 */
+	public long getSerializedIdentifierBytes();
+
+	/**
+	 * Resets all counters to zero.
+	 */
+	public void reset();
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import saker.build.thirdparty.saker.util.ObjectUtils;
+
+/**
+ * Size bounded cache for the option merging decisions.
+ * <p>
+ * The cache memoizes the result of
+ * {@link CompilerUtils#canMergeIdentifiers(CompilationIdentifier, CompilationIdentifier)} and
+ * {@link CompilerUtils#canMergeCompilerLanguages(CompilerLanguage, CompilerLanguage)} for a given target and options
+ * configuration. It is useful when the same configuration pairs are checked repeatedly, e.g. by multiple tasks or
+ * multiple build executions.
+ * <p>
+ * The cache is safe to be used concurrently. Lookups don't acquire any locks. If the cache is full, the entries are
+ * evicted using the CLOCK (second chance) algorithm. Larger caches are split into segments by the hash of the
+ * configurations, each having its own clock and lock, so concurrent insertions only contend if they fall into the same
+ * segment. As the capacity is divided between the segments, a segment may evict entries before the whole cache is
+ * full.
+ * <p>
+ * The languages are compared in an ignore-case manner, the same way as
+ * {@link CompilerUtils#canMergeLanguages(String, String)} does.
+ */
+public final class MergeDecisionCache {
+	/**
+	 * The maximum number of segments.
+	 */
+	private static final int MAX_SEGMENT_COUNT = 64;
+	/**
+	 * The minimum capacity of a segment. Smaller caches use fewer segments.
+	 */
+	private static final int MIN_SEGMENT_CAPACITY = 64;
+
+	private final ConcurrentHashMap<DecisionKey, Decision> decisions;
+	private final Segment[] segments;
+	private final int capacity;
+
+	/**
+	 * Creates a new cache with the given maximum size.
+	 * 
+	 * @param capacity
+	 *            The maximum number of decisions that are cached.
+	 * @throws IllegalArgumentException
+	 *             If the capacity is less than 1.
+	 */
+	public MergeDecisionCache(int capacity) throws IllegalArgumentException {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		this.decisions = new ConcurrentHashMap<>(Math.min(capacity, 1 << 16) * 4 / 3 + 1);
+		this.capacity = capacity;
+		int segmentcount = Integer
+				.highestOneBit(Math.max(1, Math.min(MAX_SEGMENT_COUNT, capacity / MIN_SEGMENT_CAPACITY)));
+		this.segments = new Segment[segmentcount];
+		for (int i = 0; i < segmentcount; i++) {
+			//distribute the remainder among the first segments
+			segments[i] = new Segment(capacity / segmentcount + (i < capacity % segmentcount ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Gets the maximum number of decisions in this cache.
+	 * 
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of decisions currently in this cache.
+	 * 
+	 * @return The number of cached decisions.
+	 */
+	public int size() {
+		return decisions.size();
+	}
+
+	/**
+	 * Removes all decisions from the cache.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear(decisions);
+		}
+	}
+
+	/**
+	 * Checks if the options configuration can be merged into the target configuration.
+	 * <p>
+	 * The result is the same as
+	 * <code>canMergeIdentifiers(targetid, optionsid) &amp;&amp; canMergeLanguages(targetlang, optionslang)</code>
+	 * using the functions in {@link CompilerUtils}.
+	 * 
+	 * @param targetid
+	 *            The identifier of the target configuration. May be <code>null</code>.
+	 * @param targetlang
+	 *            The language of the target configuration. May be <code>null</code>.
+	 * @param optionsid
+	 *            The identifier of the options configuration. May be <code>null</code>.
+	 * @param optionslang
+	 *            The language of the options configuration. May be <code>null</code>.
+	 * @return <code>true</code> if the options can be merged.
+	 */
+	public boolean canMerge(CompilationIdentifier targetid, String targetlang, CompilationIdentifier optionsid,
+			String optionslang) {
+		return canMerge(targetid, toLanguage(targetlang), optionsid, toLanguage(optionslang));
+	}
+
+	/**
+	 * Checks if the options configuration can be merged into the target configuration.
+	 * <p>
+	 * The result is the same as
+	 * <code>canMergeIdentifiers(targetid, optionsid) &amp;&amp; canMergeLanguages(targetlang, optionslang)</code>
+	 * using the functions in {@link CompilerUtils}.
+	 * 
+	 * @param targetid
+	 *            The identifier of the target configuration. May be <code>null</code>.
+	 * @param targetlang
+	 *            The language of the target configuration. May be <code>null</code>.
+	 * @param optionsid
+	 *            The identifier of the options configuration. May be <code>null</code>.
+	 * @param optionslang
+	 *            The language of the options configuration. May be <code>null</code>.
+	 * @return <code>true</code> if the options can be merged.
+	 */
+	public boolean canMerge(CompilationIdentifier targetid, CompilerLanguage targetlang,
+			CompilationIdentifier optionsid, CompilerLanguage optionslang) {
+		DecisionKey key = new DecisionKey(targetid, targetlang, optionsid, optionslang);
+		Decision found = decisions.get(key);
+		if (found != null) {
+			if (!found.referenced) {
+				//only write if necessary to avoid unnecessary cache line invalidation
+				found.referenced = true;
+			}
+			return found.result;
+		}
+		boolean result = CompilerUtils.canMergeCompilerLanguages(targetlang, optionslang)
+				&& CompilerUtils.canMergeIdentifiers(targetid, optionsid);
+		int h = key.hashCode();
+		segments[(h ^ (h >>> 16)) & (segments.length - 1)].insert(decisions, new Decision(key, result));
+		return result;
+	}
+
+	private static CompilerLanguage toLanguage(String lang) {
+		if (ObjectUtils.isNullOrEmpty(lang)) {
+			return null;
+		}
+		return CompilerLanguage.valueOf(lang);
+	}
+
+	private static final class Segment {
+		/**
+		 * The clock of the cached entries in this segment. Only accessed while locked on the segment.
+		 */
+		private final Decision[] clock;
+		private int hand;
+
+		public Segment(int capacity) {
+			this.clock = new Decision[capacity];
+		}
+
+		public synchronized void insert(ConcurrentHashMap<DecisionKey, Decision> decisions, Decision decision) {
+			if (decisions.putIfAbsent(decision.key, decision) != null) {
+				//inserted concurrently
+				return;
+			}
+			Decision[] clock = this.clock;
+			int h = hand;
+			while (true) {
+				Decision current = clock[h];
+				if (current == null) {
+					break;
+				}
+				if (!current.referenced) {
+					decisions.remove(current.key, current);
+					break;
+				}
+				//second chance
+				current.referenced = false;
+				if (++h == clock.length) {
+					h = 0;
+				}
+			}
+			clock[h] = decision;
+			hand = h + 1 == clock.length ? 0 : h + 1;
+		}
+
+		public synchronized void clear(ConcurrentHashMap<DecisionKey, Decision> decisions) {
+			for (Decision d : clock) {
+				if (d != null) {
+					decisions.remove(d.key, d);
+				}
+			}
+			Arrays.fill(clock, null);
+			hand = 0;
+		}
+	}
+
+	private static final class Decision {
+		final DecisionKey key;
+		final boolean result;
+		/**
+		 * The reference bit of the CLOCK algorithm. Races on this field are benign.
+		 */
+		volatile boolean referenced;
+
+		public Decision(DecisionKey key, boolean result) {
+			this.key = key;
+			this.result = result;
+		}
+	}
+
+	private static final class DecisionKey {
+		private final CompilationIdentifier targetId;
+		private final CompilerLanguage targetLanguage;
+		private final CompilationIdentifier optionsId;
+		private final CompilerLanguage optionsLanguage;
+		private final int hashCode;
+
+		public DecisionKey(CompilationIdentifier targetId, CompilerLanguage targetLanguage,
+				CompilationIdentifier optionsId, CompilerLanguage optionsLanguage) {
+			this.targetId = targetId;
+			this.targetLanguage = targetLanguage;
+			this.optionsId = optionsId;
+			this.optionsLanguage = optionsLanguage;
+			int h = Objects.hashCode(targetId);
+			h = h * 31 + Objects.hashCode(targetLanguage);
+			h = h * 31 + Objects.hashCode(optionsId);
+			h = h * 31 + Objects.hashCode(optionsLanguage);
+			this.hashCode = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof DecisionKey)) {
+				return false;
+			}
+			DecisionKey other = (DecisionKey) obj;
+			return hashCode == other.hashCode && targetLanguage == other.targetLanguage
+					&& optionsLanguage == other.optionsLanguage && Objects.equals(targetId, other.targetId)
+					&& Objects.equals(optionsId, other.optionsId);
+		}
+	}
+}
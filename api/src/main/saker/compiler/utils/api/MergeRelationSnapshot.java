@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+import saker.build.thirdparty.saker.util.ObjectUtils;
+
+/**
+ * Snapshot of the target and option configurations that take part in option merging.
+ * <p>
+ * The snapshot records the identifiers and languages of the targets and options. It can be persisted between build
+ * executions, and used to determine which targets are affected by the changes of the option configurations. See
+ * {@link #getAffectedTargets(MergeRelationSnapshot)}.
+ * <p>
+ * The snapshot doesn't track the contents of the options. If the options associated with an unchanged identifier and
+ * language are modified, the affected targets need to be determined by the caller.
+ * <p>
+ * Instances can be created using {@link #builder()}.
+ */
+public final class MergeRelationSnapshot implements Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private List<Configuration> targets;
+	private List<Configuration> options;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public MergeRelationSnapshot() {
+	}
+
+	private MergeRelationSnapshot(List<Configuration> targets, List<Configuration> options) {
+		this.targets = targets;
+		this.options = options;
+	}
+
+	/**
+	 * Creates a new builder for a snapshot.
+	 * 
+	 * @return The builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Gets the number of targets in the snapshot.
+	 * 
+	 * @return The target count.
+	 */
+	public int getTargetCount() {
+		return targets.size();
+	}
+
+	/**
+	 * Gets the number of options in the snapshot.
+	 * 
+	 * @return The options count.
+	 */
+	public int getOptionsCount() {
+		return options.size();
+	}
+
+	/**
+	 * Gets the identifier of the target at the given index.
+	 * 
+	 * @param index
+	 *            The index of the target in the order they were added to the builder.
+	 * @return The target identifier. May be <code>null</code>.
+	 * @throws IndexOutOfBoundsException
+	 *             If the index is out of bounds.
+	 */
+	public CompilationIdentifier getTargetIdentifier(int index) throws IndexOutOfBoundsException {
+		return targets.get(index).identifier;
+	}
+
+	/**
+	 * Gets the language of the target at the given index.
+	 * 
+	 * @param index
+	 *            The index of the target in the order they were added to the builder.
+	 * @return The target language. May be <code>null</code>.
+	 * @throws IndexOutOfBoundsException
+	 *             If the index is out of bounds.
+	 */
+	public CompilerLanguage getTargetLanguage(int index) throws IndexOutOfBoundsException {
+		return targets.get(index).language;
+	}
+
+	/**
+	 * Determines the targets of this snapshot for which the set of mergeable options changed compared to the argument
+	 * previous snapshot.
+	 * <p>
+	 * A target is affected if it wasn't present in the previous snapshot, or if any options that were added or
+	 * removed since the previous snapshot can be merged into it. The options are compared as multisets, so adding or
+	 * removing a duplicate of an existing options configuration is a change too. Only the differences of the options
+	 * are examined, the unchanged options are not checked against the targets.
+	 * <p>
+	 * If there is no previous snapshot, all targets are affected.
+	 * 
+	 * @param previous
+	 *            The previous snapshot. May be <code>null</code>.
+	 * @return The indices of the affected targets in this snapshot.
+	 */
+	public BitSet getAffectedTargets(MergeRelationSnapshot previous) {
+		int targetcount = targets.size();
+		BitSet result = new BitSet(targetcount);
+		if (previous == null) {
+			result.set(0, targetcount);
+			return result;
+		}
+		//the same configuration may be added multiple times, so the occurrences are counted
+		//the count is non-zero if the configuration was added or removed
+		Map<Configuration, Integer> optioncounts = new HashMap<>();
+		for (Configuration c : options) {
+			optioncounts.merge(c, 1, Integer::sum);
+		}
+		for (Configuration c : previous.options) {
+			optioncounts.merge(c, -1, Integer::sum);
+		}
+		OptionsMergeIndex.Builder<Configuration> changedbuilder = OptionsMergeIndex.builder();
+		for (Entry<Configuration, Integer> entry : optioncounts.entrySet()) {
+			if (entry.getValue() != 0) {
+				Configuration c = entry.getKey();
+				changedbuilder.add(c.identifier, c.getLanguageName(), c);
+			}
+		}
+		OptionsMergeIndex<Configuration> changed = changedbuilder.build();
+		Set<Configuration> prevtargets = new HashSet<>(previous.targets);
+		for (int i = 0; i < targetcount; i++) {
+			Configuration t = targets.get(i);
+			if (!prevtargets.contains(t)) {
+				result.set(i);
+				continue;
+			}
+			if (changed.size() > 0 && !changed.getMergeable(t.identifier, t.getLanguageName()).isEmpty()) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeConfigurations(out, targets);
+		writeConfigurations(out, options);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		targets = readConfigurations(in);
+		options = readConfigurations(in);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[targets=" + targets + ", options=" + options + "]";
+	}
+
+	private static void writeConfigurations(ObjectOutput out, List<Configuration> configs) throws IOException {
+		out.writeInt(configs.size());
+		for (Configuration c : configs) {
+			out.writeObject(c.identifier);
+			out.writeObject(c.language);
+		}
+	}
+
+	private static List<Configuration> readConfigurations(ObjectInput in) throws IOException, ClassNotFoundException {
+		int size = in.readInt();
+		if (size < 0) {
+			throw new InvalidObjectException("Invalid configuration count: " + size);
+		}
+		List<Configuration> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			CompilationIdentifier id = (CompilationIdentifier) in.readObject();
+			CompilerLanguage lang = (CompilerLanguage) in.readObject();
+			result.add(new Configuration(id, lang));
+		}
+		return result;
+	}
+
+	private static CompilerLanguage toLanguage(String lang) {
+		if (ObjectUtils.isNullOrEmpty(lang)) {
+			return null;
+		}
+		return CompilerLanguage.valueOf(lang);
+	}
+
+	private static final class Configuration {
+		final CompilationIdentifier identifier;
+		final CompilerLanguage language;
+
+		public Configuration(CompilationIdentifier identifier, CompilerLanguage language) {
+			this.identifier = identifier;
+			this.language = language;
+		}
+
+		public String getLanguageName() {
+			return language == null ? null : language.getName();
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(identifier) * 31 + Objects.hashCode(language);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Configuration)) {
+				return false;
+			}
+			Configuration other = (Configuration) obj;
+			return language == other.language && Objects.equals(identifier, other.identifier);
+		}
+
+		@Override
+		public String toString() {
+			return identifier + (language == null ? "" : "/" + language.getName());
+		}
+	}
+
+	/**
+	 * Builder class for {@link MergeRelationSnapshot}.
+	 */
+	public static final class Builder {
+		private final List<Configuration> targets = new ArrayList<>();
+		private final List<Configuration> options = new ArrayList<>();
+
+		Builder() {
+		}
+
+		/**
+		 * Adds a target configuration to the snapshot.
+		 * 
+		 * @param targetid
+		 *            The identifier of the target. May be <code>null</code>.
+		 * @param targetlang
+		 *            The language of the target. May be <code>null</code>.
+		 * @return <code>this</code>
+		 */
+		public Builder addTarget(CompilationIdentifier targetid, String targetlang) {
+			targets.add(new Configuration(targetid, toLanguage(targetlang)));
+			return this;
+		}
+
+		/**
+		 * Adds an options configuration to the snapshot.
+		 * 
+		 * @param optionsid
+		 *            The identifier of the options. May be <code>null</code>.
+		 * @param optionslang
+		 *            The language of the options. May be <code>null</code>.
+		 * @return <code>this</code>
+		 */
+		public Builder addOptions(CompilationIdentifier optionsid, String optionslang) {
+			options.add(new Configuration(optionsid, toLanguage(optionslang)));
+			return this;
+		}
+
+		/**
+		 * Builds the snapshot.
+		 * <p>
+		 * The builder can be reused after this call.
+		 * 
+		 * @return The constructed snapshot.
+		 */
+		public MergeRelationSnapshot build() {
+			return new MergeRelationSnapshot(new ArrayList<>(targets), new ArrayList<>(options));
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.nio.LongBuffer;
+import java.util.BitSet;
+
+/**
+ * Holds the mergeability relation between a list of target configurations and a list of option configurations.
+ * <p>
+ * The matrix is indexed by the target and options indices in the lists that were used to compute it. The relation is
+ * stored as a bitset, where each target has its own row.
+ * <p>
+ * Instances of this class are immutable, and can be created using
+ * {@link CompilerUtils#computeMergeabilityMatrix(java.util.List, java.util.List, java.util.List, java.util.List)}.
+ */
+public final class MergeabilityMatrix {
+	/**
+	 * The maximum number of longs that are used to store the matrix, limited by the maximum array size.
+	 */
+	private static final int MAX_WORD_COUNT = Integer.MAX_VALUE - 8;
+
+	private final int targetCount;
+	private final int optionsCount;
+	private final int wordsPerRow;
+	private final long[] bits;
+
+	MergeabilityMatrix(int targetCount, int optionsCount) throws IllegalArgumentException {
+		int wordsperrow = (optionsCount + 63) >>> 6;
+		long wordcount = (long) wordsperrow * targetCount;
+		if (wordcount > MAX_WORD_COUNT) {
+			//the bit offsets are computed with int arithmetic, which is safe within the array size
+			throw new IllegalArgumentException(
+					"Mergeability matrix too large for " + targetCount + " targets and " + optionsCount + " options.");
+		}
+		this.targetCount = targetCount;
+		this.optionsCount = optionsCount;
+		this.wordsPerRow = wordsperrow;
+		this.bits = new long[(int) wordcount];
+	}
+
+	/**
+	 * Gets the number of targets in the matrix.
+	 * 
+	 * @return The target count.
+	 */
+	public int getTargetCount() {
+		return targetCount;
+	}
+
+	/**
+	 * Gets the number of options in the matrix.
+	 * 
+	 * @return The options count.
+	 */
+	public int getOptionsCount() {
+		return optionsCount;
+	}
+
+	/**
+	 * Checks if the options at the given index can be merged into the target at the given index.
+	 * 
+	 * @param targetindex
+	 *            The index of the target.
+	 * @param optionsindex
+	 *            The index of the options.
+	 * @return <code>true</code> if the options can be merged.
+	 * @throws IndexOutOfBoundsException
+	 *             If any of the indices are out of bounds.
+	 */
+	public boolean canMerge(int targetindex, int optionsindex) throws IndexOutOfBoundsException {
+		checkIndex(targetindex, targetCount);
+		checkIndex(optionsindex, optionsCount);
+		return (bits[targetindex * wordsPerRow + (optionsindex >>> 6)] & (1L << optionsindex)) != 0;
+	}
+
+	/**
+	 * Gets the indices of the options that can be merged into the target at the given index.
+	 * 
+	 * @param targetindex
+	 *            The index of the target.
+	 * @return A new bitset that contains the indices of the mergeable options.
+	 * @throws IndexOutOfBoundsException
+	 *             If the index is out of bounds.
+	 */
+	public BitSet getMergeableOptions(int targetindex) throws IndexOutOfBoundsException {
+		checkIndex(targetindex, targetCount);
+		int start = targetindex * wordsPerRow;
+		return BitSet.valueOf(LongBuffer.wrap(bits, start, wordsPerRow));
+	}
+
+	void set(int targetindex, int optionsindex) {
+		bits[targetindex * wordsPerRow + (optionsindex >>> 6)] |= 1L << optionsindex;
+	}
+
+	private static void checkIndex(int index, int count) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + " for size: " + count);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Index of option configurations for looking up the ones that can be merged into a target configuration.
+ * <p>
+ * The index is constructed once from the options identifiers, languages and associated payloads, and can be queried for
+ * each target configuration afterwards. A query returns the payloads of all options that
+ * {@linkplain CompilerUtils#canMergeIdentifiers(CompilationIdentifier, CompilationIdentifier) can merge identifiers}
+ * and {@linkplain CompilerUtils#canMergeLanguages(String, String) can merge languages} with the target.
+ * <p>
+ * The options are indexed by their least frequent name part, so a query only examines the options which have an index
+ * part that is present in the target identifier, instead of checking all of them.
+ * <p>
+ * The index is immutable and can be queried concurrently from multiple threads.
+ * <p>
+ * Use {@link #builder()} to create a new instance.
+ * 
+ * @param <T>
+ *            The type of the payloads associated with the options.
+ */
+public final class OptionsMergeIndex<T> {
+	private static final int[] EMPTY_INT_ARRAY = {};
+
+	private final CompilationIdentifier[] identifiers;
+	private final String[] languages;
+	private final Object[] payloads;
+	/**
+	 * Indices of the options that are merged regardless of the target identifier.
+	 */
+	private final int[] unconditionalIndices;
+	/**
+	 * Indices of the options that have an identifier, but no part to be indexed by.
+	 * <p>
+	 * These can only be merged into targets with a non-<code>null</code> identifier. This can happen with foreign
+	 * {@link CompilationIdentifier} implementations.
+	 */
+	private final int[] unindexedIndices;
+	/**
+	 * Indices of the options mapped to their least frequent identifier part.
+	 */
+	private final Map<String, int[]> partIndices;
+
+	private OptionsMergeIndex(Builder<T> builder) {
+		int size = builder.identifiers.size();
+		this.identifiers = builder.identifiers.toArray(new CompilationIdentifier[size]);
+		this.languages = builder.languages.toArray(new String[size]);
+		this.payloads = builder.payloads.toArray();
+
+		Map<String, Integer> partfrequencies = new HashMap<>();
+		for (CompilationIdentifier id : identifiers) {
+			if (id == null) {
+				continue;
+			}
+			for (String p : id.getParts()) {
+				partfrequencies.merge(p, 1, Integer::sum);
+			}
+		}
+		Map<String, List<Integer>> indexlists = new HashMap<>();
+		List<Integer> unconditionals = new ArrayList<>();
+		List<Integer> unindexed = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			CompilationIdentifier id = identifiers[i];
+			if (id == null) {
+				unconditionals.add(i);
+				continue;
+			}
+			String indexpart = getLeastFrequentPart(id.getParts(), partfrequencies);
+			if (indexpart == null) {
+				unindexed.add(i);
+			} else {
+				indexlists.computeIfAbsent(indexpart, x -> new ArrayList<>()).add(i);
+			}
+		}
+		this.unconditionalIndices = toIntArray(unconditionals);
+		this.unindexedIndices = toIntArray(unindexed);
+		this.partIndices = new HashMap<>();
+		for (Entry<String, List<Integer>> entry : indexlists.entrySet()) {
+			partIndices.put(entry.getKey(), toIntArray(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Creates a new builder for the index.
+	 * 
+	 * @param <T>
+	 *            The type of the payloads.
+	 * @return The new builder.
+	 */
+	public static <T> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * Gets the number of options in this index.
+	 * 
+	 * @return The number of options.
+	 */
+	public int size() {
+		return payloads.length;
+	}
+
+	/**
+	 * Gets the payloads of the options which can be merged into the argument target configuration.
+	 * <p>
+	 * The result contains the payloads in the same order as they were added to the builder.
+	 * 
+	 * @param targetid
+	 *            The identifier of the target configuration. May be <code>null</code>.
+	 * @param targetlang
+	 *            The language of the target configuration. May be <code>null</code>.
+	 * @return An unmodifiable list of payloads of the mergeable options.
+	 */
+	public List<T> getMergeable(CompilationIdentifier targetid, String targetlang) {
+		int[] matches = getMergeableIndices(targetid, targetlang);
+		if (matches.length == 0) {
+			return Collections.emptyList();
+		}
+		List<T> result = new ArrayList<>(matches.length);
+		for (int idx : matches) {
+			result.add(getPayload(idx));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	int[] getMergeableIndices(CompilationIdentifier targetid, String targetlang) {
+		int[] result = new int[8];
+		int count = 0;
+		for (int idx : unconditionalIndices) {
+			if (CompilerUtils.canMergeLanguages(targetlang, languages[idx])) {
+				result = ensureCapacity(result, count);
+				result[count++] = idx;
+			}
+		}
+		if (targetid != null) {
+			for (int idx : unindexedIndices) {
+				if (CompilerUtils.canMergeLanguages(targetlang, languages[idx])
+						&& CompilerUtils.canMergeIdentifiers(targetid, identifiers[idx])) {
+					result = ensureCapacity(result, count);
+					result[count++] = idx;
+				}
+			}
+			for (String p : targetid.getParts()) {
+				int[] candidates = partIndices.get(p);
+				if (candidates == null) {
+					continue;
+				}
+				for (int idx : candidates) {
+					if (CompilerUtils.canMergeLanguages(targetlang, languages[idx])
+							&& CompilerUtils.canMergeIdentifiers(targetid, identifiers[idx])) {
+						result = ensureCapacity(result, count);
+						result[count++] = idx;
+					}
+				}
+			}
+		}
+		if (count == 0) {
+			return EMPTY_INT_ARRAY;
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	T getPayload(int index) {
+		return (T) payloads[index];
+	}
+
+	private static String getLeastFrequentPart(Set<String> parts, Map<String, Integer> partfrequencies) {
+		String result = null;
+		int resultfrequency = Integer.MAX_VALUE;
+		for (String p : parts) {
+			if (p == null) {
+				continue;
+			}
+			int freq = partfrequencies.get(p);
+			if (freq < resultfrequency) {
+				result = p;
+				resultfrequency = freq;
+			}
+		}
+		return result;
+	}
+
+	private static int[] ensureCapacity(int[] array, int count) {
+		if (count < array.length) {
+			return array;
+		}
+		return Arrays.copyOf(array, array.length * 2);
+	}
+
+	private static int[] toIntArray(List<Integer> list) {
+		int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = list.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Builder class for {@link OptionsMergeIndex}.
+	 * 
+	 * @param <T>
+	 *            The type of the payloads.
+	 */
+	public static final class Builder<T> {
+		private final List<CompilationIdentifier> identifiers = new ArrayList<>();
+		private final List<String> languages = new ArrayList<>();
+		private final List<T> payloads = new ArrayList<>();
+
+		Builder() {
+		}
+
+		/**
+		 * Adds an option configuration to the index.
+		 * 
+		 * @param optionsid
+		 *            The identifier of the options. May be <code>null</code>.
+		 * @param optionslang
+		 *            The language of the options. May be <code>null</code>.
+		 * @param payload
+		 *            The payload to associate with the options.
+		 * @return <code>this</code>
+		 */
+		public Builder<T> add(CompilationIdentifier optionsid, String optionslang, T payload) {
+			identifiers.add(optionsid);
+			languages.add(optionslang);
+			payloads.add(payload);
+			return this;
+		}
+
+		/**
+		 * Builds the index.
+		 * <p>
+		 * The builder can be reused after this call.
+		 * 
+		 * @return The constructed index.
+		 */
+		public OptionsMergeIndex<T> build() {
+			return new OptionsMergeIndex<>(this);
+		}
+	}
+}
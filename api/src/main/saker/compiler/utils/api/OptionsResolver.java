@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import saker.build.thirdparty.saker.util.ObjectUtils;
+
+/**
+ * Resolves the option configurations that apply to a target configuration in the order of their specificity.
+ * <p>
+ * The resolver returns the same options as {@link OptionsMergeIndex}, but ordered so that the less specific options
+ * come first, and the more specific ones later. Clients can apply the options in the returned order, letting the more
+ * specific options override the less specific ones.
+ * <p>
+ * The specificity of the options is determined by the following, in this order: <br>
+ * The options with less identifier parts are less specific. Options without an identifier have no parts. <br>
+ * The options without a language are less specific than the ones with a language. <br>
+ * The options that were added earlier to the builder are less specific.
+ * <p>
+ * The options are sorted once when the resolver is built, and the queries are served by an {@link OptionsMergeIndex},
+ * so the options don't need to be sorted again for each target.
+ * <p>
+ * The resolver is immutable and can be queried concurrently from multiple threads.
+ * <p>
+ * Use {@link #builder()} to create a new instance.
+ * 
+ * @param <T>
+ *            The type of the payloads associated with the options.
+ */
+public final class OptionsResolver<T> {
+	private static final Comparator<Entry<?>> SPECIFICITY_COMPARATOR = Comparator
+			.<Entry<?>> comparingInt(e -> e.identifier == null ? 0 : e.identifier.getParts().size())
+			.thenComparing(e -> !ObjectUtils.isNullOrEmpty(e.language)).thenComparingInt(e -> e.declarationIndex);
+
+	private final OptionsMergeIndex<T> index;
+
+	private OptionsResolver(OptionsMergeIndex<T> index) {
+		this.index = index;
+	}
+
+	/**
+	 * Creates a new builder for the resolver.
+	 * 
+	 * @param <T>
+	 *            The type of the payloads.
+	 * @return The new builder.
+	 */
+	public static <T> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * Gets the number of options in this resolver.
+	 * 
+	 * @return The number of options.
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Gets the payloads of the options that apply to the argument target configuration.
+	 * <p>
+	 * The payloads are ordered from the least specific to the most specific options.
+	 * 
+	 * @param targetid
+	 *            The identifier of the target configuration. May be <code>null</code>.
+	 * @param targetlang
+	 *            The language of the target configuration. May be <code>null</code>.
+	 * @return An unmodifiable list of payloads of the applicable options.
+	 */
+	public List<T> resolve(CompilationIdentifier targetid, String targetlang) {
+		return index.getMergeable(targetid, targetlang);
+	}
+
+	private static final class Entry<T> {
+		final CompilationIdentifier identifier;
+		final String language;
+		final T payload;
+		final int declarationIndex;
+
+		public Entry(CompilationIdentifier identifier, String language, T payload, int declarationIndex) {
+			this.identifier = identifier;
+			this.language = language;
+			this.payload = payload;
+			this.declarationIndex = declarationIndex;
+		}
+	}
+
+	/**
+	 * Builder class for {@link OptionsResolver}.
+	 * 
+	 * @param <T>
+	 *            The type of the payloads.
+	 */
+	public static final class Builder<T> {
+		private final List<Entry<T>> entries = new ArrayList<>();
+
+		Builder() {
+		}
+
+		/**
+		 * Adds an option configuration to the resolver.
+		 * 
+		 * @param optionsid
+		 *            The identifier of the options. May be <code>null</code>.
+		 * @param optionslang
+		 *            The language of the options. May be <code>null</code>.
+		 * @param payload
+		 *            The payload to associate with the options.
+		 * @return <code>this</code>
+		 */
+		public Builder<T> add(CompilationIdentifier optionsid, String optionslang, T payload) {
+			entries.add(new Entry<>(optionsid, optionslang, payload, entries.size()));
+			return this;
+		}
+
+		/**
+		 * Builds the resolver.
+		 * <p>
+		 * The builder can be reused after this call.
+		 * 
+		 * @return The constructed resolver.
+		 */
+		public OptionsResolver<T> build() {
+			List<Entry<T>> sorted = new ArrayList<>(entries);
+			Collections.sort(sorted, SPECIFICITY_COMPARATOR);
+			OptionsMergeIndex.Builder<T> indexbuilder = OptionsMergeIndex.builder();
+			for (Entry<T> e : sorted) {
+				indexbuilder.add(e.identifier, e.language, e.payload);
+			}
+			return new OptionsResolver<>(indexbuilder.build());
+		}
+	}
+}
@@ -17,27 +17,104 @@ package saker.compiler.utils.impl;
 
 import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.util.LinkedHashSet;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
 
-import saker.build.thirdparty.saker.util.ImmutableUtils;
-import saker.build.thirdparty.saker.util.ObjectUtils;
-import saker.build.thirdparty.saker.util.StringUtils;
-import saker.build.thirdparty.saker.util.io.SerialUtils;
 import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerUtilsMetricsListener;
 
 public final class CompilationIdentifierImpl implements CompilationIdentifier, Externalizable {
 	private static final long serialVersionUID = 1L;
 
-	private static final Pattern PATTERN_SPLIT = Pattern.compile("[-]+");
-	private static final Pattern PATTERN_PART = Pattern.compile("[a-zA-Z0-9_.\\(\\)\\[\\]@]+");
+	/**
+	 * The maximum length of the names returned by {@link #toOutputDirectoryName(String)}.
+	 * <p>
+	 * Most file systems limit the length of a file name to 255 characters.
+	 */
+	public static final int MAX_OUTPUT_DIRECTORY_NAME_LENGTH = 255;
 
-	private Set<String> parts;
+	private static final boolean[] PART_CHARACTERS = new boolean[128];
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			PART_CHARACTERS[c] = true;
+		}
+		for (char c = 'A'; c <= 'Z'; c++) {
+			PART_CHARACTERS[c] = true;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			PART_CHARACTERS[c] = true;
+		}
+		for (char c : "_.()[]@".toCharArray()) {
+			PART_CHARACTERS[c] = true;
+		}
+	}
+
+	/**
+	 * Interner for the identifiers that have the same parts in the same order.
+	 * <p>
+	 * The order is significant as it determines the {@link #toString()} result.
+	 */
+	private static final WeakInterner<CompilationIdentifierImpl> INTERNER = new WeakInterner<>(
+			id -> id.stringValue.hashCode(), CompilationIdentifierImpl::orderedEquals);
+	/**
+	 * Interner for the {@linkplain #representative representatives} of the identifiers with equal part sets.
+	 */
+	private static final WeakInterner<CompilationIdentifierImpl> REPRESENTATIVE_INTERNER = new WeakInterner<>();
+
+	private ImmutablePartSet parts;
+	/**
+	 * The canonical instance that represents all canonical identifiers which have the same part set, regardless of
+	 * order.
+	 * <p>
+	 * Non-<code>null</code> if this instance is canonical. Two canonical identifiers are equal if and only if they have
+	 * the same representative.
+	 */
+	private transient CompilationIdentifierImpl representative;
+	/**
+	 * The bitset of the {@linkplain IdentifierPartDictionary part indices} for the first 64 indices.
+	 */
+	private transient long partMask;
+	/**
+	 * The part indices that are not in the {@link #partMask}, sorted in ascending order.
+	 * <p>
+	 * <code>null</code> if there are no such parts. The indices are stored sparsely, as they can be arbitrarily large.
+	 */
+	private transient int[] extendedPartIndices;
+	/**
+	 * The dictionary entries of the parts.
+	 * <p>
+	 * Referenced so the dictionary keeps the part indices assigned while this identifier is reachable.
+	 */
+	private transient IdentifierPartDictionary.Part[] dictionaryParts;
+	/**
+	 * The cached {@link #hashCode()}.
+	 */
+	private transient int hashCode;
+	/**
+	 * The cached {@link #fingerprint()}.
+	 */
+	private transient long fingerprint;
+	/**
+	 * The cached {@link #toString()}.
+	 */
+	private transient String stringValue;
+	/**
+	 * The lazily computed {@link #toCanonicalString()}.
+	 */
+	private transient String canonicalStringValue;
+	/**
+	 * The lazily computed {@link #getOutputDirectoryName()}.
+	 */
+	private transient String outputDirectoryName;
 
 	/**
 	 * For {@link Externalizable}.
@@ -45,8 +122,24 @@ public final class CompilationIdentifierImpl implements CompilationIdentifier, E
 	public CompilationIdentifierImpl() {
 	}
 
-	public CompilationIdentifierImpl(Set<String> parts) {
-		this.parts = ImmutableUtils.unmodifiableSet(parts);
+	/**
+	 * Creates a new identifier with the argument parts.
+	 * <p>
+	 * The parts are normalized to lower-case representation and validated.
+	 * 
+	 * @param parts
+	 *            The name parts.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the argument is empty, or contains invalid parts.
+	 */
+	public CompilationIdentifierImpl(Set<String> parts) throws NullPointerException, IllegalArgumentException {
+		init(normalizeParts(parts));
+	}
+
+	private CompilationIdentifierImpl(List<String> parts) {
+		init(parts);
 	}
 
 	@Override
@@ -54,6 +147,177 @@ public final class CompilationIdentifierImpl implements CompilationIdentifier, E
 		return parts;
 	}
 
+	/**
+	 * Checks if this identifier contains all the parts of the argument identifier.
+	 * <p>
+	 * The check is performed using the part index sets.
+	 * 
+	 * @param other
+	 *            The other identifier.
+	 * @return <code>true</code> if the parts of the argument is a subset of the parts in <code>this</code>.
+	 */
+	public boolean containsAllParts(CompilationIdentifierImpl other) {
+		if ((other.partMask & ~this.partMask) != 0) {
+			return false;
+		}
+		int[] otherext = other.extendedPartIndices;
+		if (otherext == null) {
+			return true;
+		}
+		int[] ext = this.extendedPartIndices;
+		if (ext == null || otherext.length > ext.length) {
+			return false;
+		}
+		//both arrays are sorted, merge them
+		int j = 0;
+		for (int idx : otherext) {
+			while (j < ext.length && ext[j] < idx) {
+				++j;
+			}
+			if (j == ext.length || ext[j] != idx) {
+				return false;
+			}
+			++j;
+		}
+		return true;
+	}
+
+	/**
+	 * Initializes the fields of this instance based on the argument parts.
+	 * <p>
+	 * The parts must be normalized and validated by the caller. The parts are replaced by their canonical instances in
+	 * the {@link IdentifierPartDictionary}. Duplicate parts are omitted.
+	 */
+	private void init(Collection<String> partcollection) {
+		long mask = 0;
+		int[] ext = null;
+		int extcount = 0;
+		int hash = 0;
+		long fingerprintsum = 0;
+		StringBuilder sb = new StringBuilder();
+		int size = partcollection.size();
+		String[] partarray = new String[size];
+		IdentifierPartDictionary.Part[] dictparts = new IdentifierPartDictionary.Part[size];
+		int count = 0;
+		for (String p : partcollection) {
+			IdentifierPartDictionary.Part dictpart = IdentifierPartDictionary.getPart(p);
+			int idx = dictpart.index;
+			if (idx < 64) {
+				long bit = 1L << idx;
+				if ((mask & bit) != 0) {
+					//duplicate
+					continue;
+				}
+				mask |= bit;
+			} else {
+				if (ext == null) {
+					ext = new int[4];
+				} else if (contains(ext, extcount, idx)) {
+					//duplicate
+					continue;
+				} else if (extcount == ext.length) {
+					ext = Arrays.copyOf(ext, extcount * 2);
+				}
+				ext[extcount++] = idx;
+			}
+			String canonicalpart = dictpart.value;
+			dictparts[count] = dictpart;
+			partarray[count++] = canonicalpart;
+			hash += canonicalpart.hashCode();
+			fingerprintsum += dictpart.fingerprint;
+			if (sb.length() > 0) {
+				sb.append('-');
+			}
+			sb.append(canonicalpart);
+		}
+		if (count != partarray.length) {
+			partarray = Arrays.copyOf(partarray, count);
+			dictparts = Arrays.copyOf(dictparts, count);
+		}
+		if (ext != null) {
+			if (extcount != ext.length) {
+				ext = Arrays.copyOf(ext, extcount);
+			}
+			Arrays.sort(ext);
+		}
+		this.parts = new ImmutablePartSet(partarray);
+		this.dictionaryParts = dictparts;
+		this.partMask = mask;
+		this.extendedPartIndices = ext;
+		this.hashCode = hash;
+		this.fingerprint = IdentifierFingerprint.finish(fingerprintsum, count);
+		this.stringValue = sb.toString();
+	}
+
+	private static boolean contains(int[] array, int count, int value) {
+		for (int i = 0; i < count; i++) {
+			if (array[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the canonical compilation identifier for the argument parts.
+	 * <p>
+	 * The parts are normalized to lower-case representation and validated. Duplicate parts are omitted.
+	 * 
+	 * @param parts
+	 *            The name parts.
+	 * @return The canonical instance.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the argument is empty, or contains invalid parts.
+	 */
+	public static CompilationIdentifierImpl intern(Collection<String> parts)
+			throws NullPointerException, IllegalArgumentException {
+		return intern(new CompilationIdentifierImpl(normalizeParts(parts)));
+	}
+
+	private static List<String> normalizeParts(Collection<String> parts) throws IllegalArgumentException {
+		Objects.requireNonNull(parts, "parts");
+		if (parts.isEmpty()) {
+			throw new IllegalArgumentException("No name parts specified in the compilation identifier.");
+		}
+		List<String> result = new ArrayList<>(parts.size());
+		for (String p : parts) {
+			if (p == null) {
+				throw new IllegalArgumentException("Null identifier part.");
+			}
+			String part = toIdentifierPart(p);
+			if (!isValidIdentifierPart(part)) {
+				throw new IllegalArgumentException("Illegal identifier part: " + part);
+			}
+			result.add(part);
+		}
+		return result;
+	}
+
+	private static CompilationIdentifierImpl intern(CompilationIdentifierImpl id) {
+		return INTERNER.intern(id, CompilationIdentifierImpl::toCanonical);
+	}
+
+	private static CompilationIdentifierImpl toCanonical(CompilationIdentifierImpl id) {
+		//may be called multiple times for the same instance if there is a concurrent insertion
+		if (id.representative == null) {
+			CompilationIdentifierImpl representative = REPRESENTATIVE_INTERNER.intern(id, r -> r);
+			id.representative = representative;
+			if (representative == id) {
+				//first reachable identifier with this part set
+				IdentifierPartDictionary.recordUsage(id, id.parts);
+			}
+		}
+		return id;
+	}
+
+	private static boolean orderedEquals(CompilationIdentifierImpl first, CompilationIdentifierImpl second) {
+		//the parts are validated, so they can't contain the separator character
+		//the joined strings equal if and only if the parts equal in the same order
+		return first.stringValue.equals(second.stringValue);
+	}
+
 	public static String toIdentifierPart(String s) {
 		if (s == null) {
 			return null;
@@ -62,41 +326,210 @@ public final class CompilationIdentifierImpl implements CompilationIdentifier, E
 	}
 
 	public static CompilationIdentifier valueOf(String id) {
+		return valueOf((CharSequence) id);
+	}
+
+	public static CompilationIdentifier valueOf(CharSequence id) {
+		Objects.requireNonNull(id, "id");
+		return parse(id, 0, id.length());
+	}
+
+	public static CompilationIdentifier valueOf(CharSequence id, int start, int end) {
 		Objects.requireNonNull(id, "id");
-		if ("".equals(id)) {
+		if (start < 0 || start > end || end > id.length()) {
+			throw new IndexOutOfBoundsException(
+					"Invalid range: " + start + " - " + end + " for sequence length: " + id.length());
+		}
+		return parse(id, start, end);
+	}
+
+	public static CompilationIdentifier valueOf(char[] id, int offset, int length) {
+		Objects.requireNonNull(id, "id");
+		if (offset < 0 || length < 0 || offset > id.length - length) {
+			throw new IndexOutOfBoundsException(
+					"Invalid range: " + offset + " with length: " + length + " for array length: " + id.length);
+		}
+		return parse(CharBuffer.wrap(id, offset, length), 0, length);
+	}
+
+	/**
+	 * Checks if the argument character is allowed in the name parts.
+	 * <p>
+	 * Upper case characters are allowed, they are normalized when the identifier is created.
+	 * 
+	 * @param c
+	 *            The character.
+	 * @return <code>true</code> if the character can be part of a name part.
+	 */
+	public static boolean isIdentifierPartChar(char c) {
+		return c < PART_CHARACTERS.length && PART_CHARACTERS[c];
+	}
+
+	/**
+	 * Gets the eagerly constructed implementation instance for the argument identifier.
+	 * 
+	 * @param id
+	 *            The identifier.
+	 * @return The implementation instance or <code>null</code> if the argument is not implemented by this library.
+	 */
+	public static CompilationIdentifierImpl toImpl(CompilationIdentifier id) {
+		if (id instanceof CompilationIdentifierImpl) {
+			return (CompilationIdentifierImpl) id;
+		}
+		if (id instanceof LazyCompilationIdentifier) {
+			return ((LazyCompilationIdentifier) id).resolve();
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the argument is a valid, normalized name part.
+	 * 
+	 * @param part
+	 *            The name part.
+	 * @return <code>true</code> if the part is not empty, and only contains the allowed lower case characters.
+	 */
+	public static boolean isValidIdentifierPart(String part) {
+		int len = part.length();
+		if (len == 0) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			char c = part.charAt(i);
+			if (!isIdentifierPartChar(c) || (c >= 'A' && c <= 'Z')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static CompilationIdentifier parse(CharSequence id, int start, int end) {
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener == null) {
+			return parseImpl(id, start, end);
+		}
+		long starttime = System.nanoTime();
+		CompilationIdentifier result;
+		try {
+			result = parseImpl(id, start, end);
+		} catch (IllegalArgumentException e) {
+			listener.identifierParseFailed();
+			throw e;
+		}
+		listener.identifierParsed(System.nanoTime() - starttime);
+		return result;
+	}
+
+	private static CompilationIdentifier parseImpl(CharSequence id, int start, int end) {
+		if (start == end) {
 			throw new IllegalArgumentException("Empty identifier.");
 		}
-		id = id.toLowerCase(Locale.ENGLISH);
-		String[] split = PATTERN_SPLIT.split(id);
-		Set<String> parts = new LinkedHashSet<>();
-		for (String s : split) {
-			if (ObjectUtils.isNullOrEmpty(s)) {
+		List<String> parts = new ArrayList<>();
+		int i = start;
+		while (i < end) {
+			char c = id.charAt(i);
+			if (c == '-') {
+				++i;
 				continue;
 			}
-			if (!PATTERN_PART.matcher(s).matches()) {
-				throw new IllegalArgumentException("Illegal identifier part: " + s);
+			int partstart = i;
+			boolean uppercase = false;
+			while (true) {
+				if (c >= 'A' && c <= 'Z') {
+					uppercase = true;
+				} else if (!isIdentifierPartChar(c)) {
+					throw new IllegalArgumentException(
+							"Illegal identifier part: " + toIdentifierPart(getPartString(id, partstart, end)));
+				}
+				if (++i == end) {
+					break;
+				}
+				c = id.charAt(i);
+				if (c == '-') {
+					break;
+				}
 			}
-			parts.add(s);
+			parts.add(toIdentifierPart(id, partstart, i, uppercase));
 		}
 		if (parts.isEmpty()) {
-			throw new IllegalArgumentException("No name parts specified in the compilation identifier: " + id);
+			throw new IllegalArgumentException("No name parts specified in the compilation identifier: "
+					+ id.subSequence(start, end));
+		}
+		//the parts are already validated
+		return intern(new CompilationIdentifierImpl(parts));
+	}
+
+	private static String toIdentifierPart(CharSequence id, int start, int end, boolean uppercase) {
+		if (!uppercase && id instanceof String) {
+			return ((String) id).substring(start, end);
+		}
+		char[] chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) {
+			char c = id.charAt(start + i);
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			chars[i] = c;
+		}
+		return new String(chars);
+	}
+
+	private static String getPartString(CharSequence id, int start, int end) {
+		int partend = start;
+		while (partend < end && id.charAt(partend) != '-') {
+			++partend;
 		}
-		return new CompilationIdentifierImpl(parts);
+		return id.subSequence(start, partend).toString();
 	}
 
 	@Override
 	public void writeExternal(ObjectOutput out) throws IOException {
-		SerialUtils.writeExternalCollection(out, parts);
+		//the format is the same as SerialUtils.writeExternalCollection
+		//the parts are the canonical instances, so the repeated parts are written as back-references by the stream
+		out.writeInt(parts.size());
+		for (String p : parts) {
+			out.writeObject(p);
+		}
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		if (listener != null) {
+			//the part count, and the parts as modified UTF-8 with the length prefix
+			//the parts only contain ASCII characters
+			int bytes = 4 + stringValue.length() - (parts.size() - 1) + parts.size() * 2;
+			listener.identifierSerialized(bytes);
+		}
 	}
 
 	@Override
 	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-		this.parts = SerialUtils.readExternalImmutableLinkedHashSet(in);
+		int size = in.readInt();
+		if (size < 0) {
+			throw new InvalidObjectException("Invalid compilation identifier part count: " + size);
+		}
+		if (size == 0) {
+			throw new InvalidObjectException("No compilation identifier parts.");
+		}
+		String[] parts = new String[size];
+		for (int i = 0; i < size; i++) {
+			Object o = in.readObject();
+			if (!(o instanceof String)) {
+				throw new InvalidObjectException("Invalid compilation identifier part: " + o);
+			}
+			String p = (String) o;
+			if (!isValidIdentifierPart(p)) {
+				throw new InvalidObjectException("Illegal compilation identifier part: " + p);
+			}
+			parts[i] = p;
+		}
+		init(Arrays.asList(parts));
+	}
+
+	private Object readResolve() {
+		return intern(this);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hashCode(getParts());
+		return hashCode;
 	}
 
 	@Override
@@ -108,6 +541,28 @@ public final class CompilationIdentifierImpl implements CompilationIdentifier, E
 		if (!(obj instanceof CompilationIdentifier)) {
 			return false;
 		}
+		if (obj instanceof LazyCompilationIdentifier) {
+			//check without resolving the lazy identifier if possible
+			if (hashCode != obj.hashCode()) {
+				return false;
+			}
+			if (stringValue.equals(obj.toString())) {
+				//same parts in the same order
+				return true;
+			}
+		}
+		CompilationIdentifierImpl otherimpl = toImpl((CompilationIdentifier) obj);
+		if (otherimpl != null) {
+			if (hashCode != otherimpl.hashCode) {
+				return false;
+			}
+			if (representative != null && otherimpl.representative != null) {
+				return representative == otherimpl.representative;
+			}
+			//the part sets equal if and only if the index sets equal
+			return partMask == otherimpl.partMask
+					&& Arrays.equals(extendedPartIndices, otherimpl.extendedPartIndices);
+		}
 		CompilationIdentifier other = (CompilationIdentifier) obj;
 		if (!parts.equals(other.getParts())) {
 			return false;
@@ -115,9 +570,100 @@ public final class CompilationIdentifierImpl implements CompilationIdentifier, E
 		return true;
 	}
 
+	@Override
+	public long fingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public String toCanonicalString() {
+		String result = canonicalStringValue;
+		if (result == null) {
+			result = CompilationIdentifier.super.toCanonicalString();
+			canonicalStringValue = result;
+		}
+		return result;
+	}
+
+	public String getOutputDirectoryName() {
+		String result = outputDirectoryName;
+		if (result == null) {
+			result = toOutputDirectoryName(toCanonicalString());
+			outputDirectoryName = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Converts the canonical string representation of an identifier to a name that can be safely used as a file name.
+	 * <p>
+	 * The canonical string representation never starts or ends with the <code>'-'</code> character, so it is used to
+	 * escape the names in an unambiguous way: <br>
+	 * If the name would start with a reserved device name on Windows (e.g. <code>con</code>, <code>nul</code>), then
+	 * it is prefixed with <code>'-'</code>. <br>
+	 * If the name ends with <code>'.'</code>, then <code>'-'</code> is appended to it, as the trailing dots are
+	 * stripped on Windows.
+	 * <p>
+	 * If the name is longer than {@link #MAX_OUTPUT_DIRECTORY_NAME_LENGTH}, it is truncated, and <code>'~'</code> and
+	 * the hexadecimal {@linkplain CompilationIdentifier#fingerprint() fingerprint} of the identifier is appended to it.
+	 * The <code>'~'</code> character never occurs in the names that are not truncated.
+	 * 
+	 * @param canonical
+	 *            The canonical string representation.
+	 * @return The file name.
+	 */
+	public static String toOutputDirectoryName(String canonical) {
+		int dotidx = canonical.indexOf('.');
+		String base = dotidx < 0 ? canonical : canonical.substring(0, dotidx);
+		boolean reserved = isWindowsReservedName(base);
+		boolean trailingdot = canonical.endsWith(".");
+		String result;
+		if (!reserved && !trailingdot) {
+			result = canonical;
+		} else {
+			StringBuilder sb = new StringBuilder(canonical.length() + 2);
+			if (reserved) {
+				sb.append('-');
+			}
+			sb.append(canonical);
+			if (trailingdot) {
+				sb.append('-');
+			}
+			result = sb.toString();
+		}
+		if (result.length() <= MAX_OUTPUT_DIRECTORY_NAME_LENGTH) {
+			return result;
+		}
+		String hash = Long.toHexString(IdentifierFingerprint.ofJoined(canonical));
+		StringBuilder sb = new StringBuilder(MAX_OUTPUT_DIRECTORY_NAME_LENGTH);
+		sb.append(result, 0, MAX_OUTPUT_DIRECTORY_NAME_LENGTH - hash.length() - 1);
+		sb.append('~');
+		sb.append(hash);
+		return sb.toString();
+	}
+
+	private static boolean isWindowsReservedName(String name) {
+		switch (name) {
+			case "con":
+			case "prn":
+			case "aux":
+			case "nul": {
+				return true;
+			}
+			default: {
+				break;
+			}
+		}
+		if (name.length() == 4 && (name.startsWith("com") || name.startsWith("lpt"))) {
+			char c = name.charAt(3);
+			return c >= '1' && c <= '9';
+		}
+		return false;
+	}
+
 	@Override
 	public String toString() {
-		return StringUtils.toStringJoin("-", parts);
+		return stringValue;
 	}
 
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import saker.compiler.utils.api.CompilerUtilsMetricsListener;
+import saker.compiler.utils.api.CompilerUtilsStatisticsMXBean;
+
+public final class CompilerUtilsStatistics implements CompilerUtilsMetricsListener, CompilerUtilsStatisticsMXBean {
+	private final LongAdder identifierParseCount = new LongAdder();
+	private final LongAdder identifierParseNanos = new LongAdder();
+	private final LongAdder identifierParseFailureCount = new LongAdder();
+	private final LongAdder identifierConcatenationCount = new LongAdder();
+	private final LongAdder identifierMergeCheckCount = new LongAdder();
+	private final LongAdder identifierMergeHitCount = new LongAdder();
+	private final LongAdder languageMergeCheckCount = new LongAdder();
+	private final LongAdder languageMergeHitCount = new LongAdder();
+	private final LongAdder serializedIdentifierCount = new LongAdder();
+	private final LongAdder serializedIdentifierBytes = new LongAdder();
+
+	public CompilerUtilsStatistics() {
+	}
+
+	@Override
+	public void identifierParsed(long nanos) {
+		identifierParseCount.increment();
+		identifierParseNanos.add(nanos);
+	}
+
+	@Override
+	public void identifierParseFailed() {
+		identifierParseFailureCount.increment();
+	}
+
+	@Override
+	public void identifiersConcatenated() {
+		identifierConcatenationCount.increment();
+	}
+
+	@Override
+	public void identifiersMergeChecked(boolean result) {
+		identifierMergeCheckCount.increment();
+		if (result) {
+			identifierMergeHitCount.increment();
+		}
+	}
+
+	@Override
+	public void languagesMergeChecked(boolean result) {
+		languageMergeCheckCount.increment();
+		if (result) {
+			languageMergeHitCount.increment();
+		}
+	}
+
+	@Override
+	public void identifierSerialized(int bytes) {
+		serializedIdentifierCount.increment();
+		serializedIdentifierBytes.add(bytes);
+	}
+
+	@Override
+	public long getIdentifierParseCount() {
+		return identifierParseCount.sum();
+	}
+
+	@Override
+	public long getIdentifierParseNanos() {
+		return identifierParseNanos.sum();
+	}
+
+	@Override
+	public long getIdentifierParseFailureCount() {
+		return identifierParseFailureCount.sum();
+	}
+
+	@Override
+	public long getIdentifierConcatenationCount() {
+		return identifierConcatenationCount.sum();
+	}
+
+	@Override
+	public long getIdentifierMergeCheckCount() {
+		return identifierMergeCheckCount.sum();
+	}
+
+	@Override
+	public long getIdentifierMergeHitCount() {
+		return identifierMergeHitCount.sum();
+	}
+
+	@Override
+	public long getLanguageMergeCheckCount() {
+		return languageMergeCheckCount.sum();
+	}
+
+	@Override
+	public long getLanguageMergeHitCount() {
+		return languageMergeHitCount.sum();
+	}
+
+	@Override
+	public long getSerializedIdentifierCount() {
+		return serializedIdentifierCount.sum();
+	}
+
+	@Override
+	public long getSerializedIdentifierBytes() {
+		return serializedIdentifierBytes.sum();
+	}
+
+	@Override
+	public void reset() {
+		identifierParseCount.reset();
+		identifierParseNanos.reset();
+		identifierParseFailureCount.reset();
+		identifierConcatenationCount.reset();
+		identifierMergeCheckCount.reset();
+		identifierMergeHitCount.reset();
+		languageMergeCheckCount.reset();
+		languageMergeHitCount.reset();
+		serializedIdentifierCount.reset();
+		serializedIdentifierBytes.reset();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+/**
+ * Functions for computing the stable 64-bit fingerprints of compilation identifiers.
+ * <p>
+ * The fingerprint of an identifier is computed as follows: <br>
+ * Each part is hashed with the 64-bit FNV-1a function over its UTF-16 characters, and the result is mixed with
+ * {@link #mix(long)}. <br>
+ * The part hashes are summed, which makes the result independent of the part order. <br>
+ * The part count multiplied by {@link #COUNT_MULTIPLIER} is added to the sum, which is mixed again with
+ * {@link #mix(long)}.
+ * <p>
+ * The algorithm only depends on the characters of the parts, so the fingerprints are the same on every JVM. It must
+ * not be changed, as the fingerprints may be persisted by the clients.
+ */
+public final class IdentifierFingerprint {
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final long COUNT_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+	private IdentifierFingerprint() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Computes the fingerprint of a single part.
+	 * 
+	 * @param part
+	 *            The part.
+	 * @return The part fingerprint.
+	 */
+	public static long ofPart(String part) {
+		return ofPart(part, 0, part.length());
+	}
+
+	/**
+	 * Computes the fingerprint of a single part that is in the given range of the argument sequence.
+	 * 
+	 * @param seq
+	 *            The character sequence.
+	 * @param start
+	 *            The start index of the part. (inclusive)
+	 * @param end
+	 *            The end index of the part. (exclusive)
+	 * @return The part fingerprint.
+	 */
+	public static long ofPart(CharSequence seq, int start, int end) {
+		long h = FNV_OFFSET_BASIS;
+		for (int i = start; i < end; i++) {
+			char c = seq.charAt(i);
+			h = (h ^ (c & 0xFF)) * FNV_PRIME;
+			h = (h ^ (c >>> 8)) * FNV_PRIME;
+		}
+		return mix(h);
+	}
+
+	/**
+	 * Computes the fingerprint of an identifier from the sum of its part fingerprints.
+	 * 
+	 * @param partsum
+	 *            The sum of the part fingerprints.
+	 * @param count
+	 *            The number of parts.
+	 * @return The identifier fingerprint.
+	 */
+	public static long finish(long partsum, int count) {
+		return mix(partsum + count * COUNT_MULTIPLIER);
+	}
+
+	/**
+	 * Computes the fingerprint of an identifier with the argument parts.
+	 * 
+	 * @param parts
+	 *            The distinct parts of the identifier.
+	 * @return The identifier fingerprint.
+	 */
+	public static long of(Iterable<String> parts) {
+		long sum = 0;
+		int count = 0;
+		for (String p : parts) {
+			sum += ofPart(p);
+			++count;
+		}
+		return finish(sum, count);
+	}
+
+	/**
+	 * Computes the fingerprint of an identifier with the distinct parts joined by <code>'-'</code>.
+	 * 
+	 * @param joined
+	 *            The joined parts, e.g. the string representation of an identifier.
+	 * @return The identifier fingerprint.
+	 */
+	public static long ofJoined(String joined) {
+		long sum = 0;
+		int count = 0;
+		for (int start = 0, len = joined.length(); start <= len;) {
+			int end = joined.indexOf('-', start);
+			if (end < 0) {
+				end = len;
+			}
+			sum += ofPart(joined, start, end);
+			++count;
+			start = end + 1;
+		}
+		return finish(sum, count);
+	}
+
+	/**
+	 * The finalizer of the SplitMix64 generator.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Global dictionary that assigns a small integer index to each distinct identifier part.
+ * <p>
+ * The indices are used to represent the part sets of compilation identifiers as bitsets. The compilation identifiers
+ * hold a strong reference to the dictionary entries of their parts, while the dictionary only references them weakly.
+ * When an entry is no longer used by any identifier, it is removed from the dictionary and its index is reused for a
+ * new part. The lowest free index is always assigned first, so the indices stay small and dense.
+ * <p>
+ * The dictionary also holds a canonical {@link String} instance for each part. Using the same instance for equal parts
+ * reduces the memory footprint, and allows object streams to write back-references for the repeated parts.
+ */
+public final class IdentifierPartDictionary {
+	private static final ConcurrentHashMap<String, PartReference> PARTS = new ConcurrentHashMap<>();
+	private static final ReferenceQueue<Part> QUEUE = new ReferenceQueue<>();
+	/**
+	 * The indices that are not assigned to any part. Also used as the lock for assigning indices.
+	 */
+	private static final BitSet FREE_INDICES = new BitSet();
+	/**
+	 * The number of indices that were ever assigned. Guarded by {@link #FREE_INDICES}.
+	 */
+	private static int indexCount;
+	/**
+	 * Whether the usage of the parts is tracked. Enabled by the first {@link #getMostUsedParts(String, int)} call.
+	 */
+	private static volatile boolean usageTrackingEnabled;
+	/**
+	 * The usages recorded by the interning, that are not yet counted in {@link #USAGE}.
+	 */
+	private static final ConcurrentLinkedQueue<UsageReference> PENDING_USAGES = new ConcurrentLinkedQueue<>();
+	/**
+	 * The number of reachable identifier part sets that each part is used in. Guarded by itself.
+	 */
+	private static final IdentifierPartTrie USAGE = new IdentifierPartTrie();
+	/**
+	 * The references to the identifiers whose usage was counted. Used to decrement the counts when they are collected.
+	 * Guarded by {@link #USAGE}.
+	 */
+	private static final Set<UsageReference> USAGE_REFERENCES = new HashSet<>();
+	private static final ReferenceQueue<Object> USAGE_QUEUE = new ReferenceQueue<>();
+
+	private IdentifierPartDictionary() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the most used parts that start with the given prefix.
+	 * <p>
+	 * The usage of a part is the number of distinct part sets of the reachable identifiers that contain it. The counts
+	 * are decremented when the identifiers are garbage collected.
+	 * <p>
+	 * The usage is only tracked after this method is first called, so the identifiers created before are not counted.
+	 * 
+	 * @param prefix
+	 *            The prefix.
+	 * @param maxcount
+	 *            The maximum number of parts to return.
+	 * @return The parts in descending order of their usage.
+	 * @see IdentifierPartTrie#getMostUsed(String, int)
+	 */
+	public static List<String> getMostUsedParts(String prefix, int maxcount) {
+		usageTrackingEnabled = true;
+		synchronized (USAGE) {
+			flushUsages();
+			return USAGE.getMostUsed(prefix, maxcount);
+		}
+	}
+
+	/**
+	 * Records the usage of the parts by the argument identifier if the tracking is enabled.
+	 * <p>
+	 * Should be called once for each distinct part set. The usage is removed when the identifier is garbage collected.
+	 * The usage is only enqueued, and counted when the usages are queried next.
+	 * 
+	 * @param identifier
+	 *            The identifier.
+	 * @param parts
+	 *            The parts of the identifier.
+	 */
+	static void recordUsage(Object identifier, Collection<String> parts) {
+		if (!usageTrackingEnabled) {
+			return;
+		}
+		PENDING_USAGES.add(new UsageReference(identifier, parts.toArray(new String[parts.size()]), USAGE_QUEUE));
+	}
+
+	/**
+	 * Counts the pending usages and removes the ones of the collected identifiers. Must be called while locked on
+	 * {@link #USAGE}.
+	 */
+	private static void flushUsages() {
+		for (UsageReference ref; (ref = PENDING_USAGES.poll()) != null;) {
+			if (ref.get() == null) {
+				//collected before being counted
+				continue;
+			}
+			ref.counted = true;
+			USAGE_REFERENCES.add(ref);
+			for (String p : ref.parts) {
+				USAGE.setCount(p, USAGE.getCount(p) + 1);
+			}
+		}
+		for (Reference<?> polled; (polled = USAGE_QUEUE.poll()) != null;) {
+			UsageReference ref = (UsageReference) polled;
+			if (!ref.counted) {
+				continue;
+			}
+			USAGE_REFERENCES.remove(ref);
+			for (String p : ref.parts) {
+				USAGE.setCount(p, USAGE.getCount(p) - 1);
+			}
+		}
+	}
+
+	/**
+	 * Gets the dictionary entry for the argument part.
+	 * <p>
+	 * The index of the entry stays assigned to the part as long as the returned entry is reachable.
+	 * 
+	 * @param part
+	 *            The normalized identifier part.
+	 * @return The dictionary entry.
+	 */
+	static Part getPart(String part) {
+		expungeStaleEntries();
+		PartReference ref = PARTS.get(part);
+		if (ref != null) {
+			Part result = ref.get();
+			if (result != null) {
+				return result;
+			}
+		}
+		synchronized (FREE_INDICES) {
+			ref = PARTS.get(part);
+			if (ref != null) {
+				Part result = ref.get();
+				if (result != null) {
+					return result;
+				}
+			}
+			int index = FREE_INDICES.nextSetBit(0);
+			if (index < 0) {
+				index = indexCount++;
+			} else {
+				FREE_INDICES.clear(index);
+			}
+			Part result = new Part(part, index);
+			//overwrites the cleared reference if any. its index is freed when it is dequeued
+			PARTS.put(part, new PartReference(result, QUEUE));
+			return result;
+		}
+	}
+
+	private static void expungeStaleEntries() {
+		Reference<? extends Part> polled = QUEUE.poll();
+		if (polled == null) {
+			return;
+		}
+		synchronized (FREE_INDICES) {
+			do {
+				PartReference ref = (PartReference) polled;
+				PARTS.remove(ref.value, ref);
+				FREE_INDICES.set(ref.index);
+			} while ((polled = QUEUE.poll()) != null);
+		}
+	}
+
+	static final class Part {
+		final String value;
+		final int index;
+		final long fingerprint;
+
+		public Part(String value, int index) {
+			this.value = value;
+			this.index = index;
+			this.fingerprint = IdentifierFingerprint.ofPart(value);
+		}
+	}
+
+	private static final class UsageReference extends WeakReference<Object> {
+		final String[] parts;
+		/**
+		 * Whether the parts were counted in the trie. Guarded by {@link IdentifierPartDictionary#USAGE}.
+		 */
+		boolean counted;
+
+		public UsageReference(Object referent, String[] parts, ReferenceQueue<Object> q) {
+			super(referent, q);
+			this.parts = parts;
+		}
+	}
+
+	private static final class PartReference extends WeakReference<Part> {
+		final String value;
+		final int index;
+
+		public PartReference(Part referent, ReferenceQueue<? super Part> q) {
+			super(referent, q);
+			this.value = referent.value;
+			this.index = referent.index;
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Prefix tree of identifier parts with their usage counts.
+ * <p>
+ * Each node stores the usage count of the part that ends at the node, and the maximum usage count in its subtree. The
+ * most used parts with a given prefix are found by a best-first search, that only visits the subtrees that may contain
+ * a result, instead of collecting all parts with the prefix.
+ * <p>
+ * The nodes of parts with zero usage count are removed, so the trie only contains the parts that are in use.
+ * <p>
+ * The trie is thread safe.
+ */
+public final class IdentifierPartTrie {
+	private static final char[] EMPTY_CHAR_ARRAY = {};
+	private static final Node[] EMPTY_NODE_ARRAY = {};
+
+	private final Node root = new Node();
+
+	/**
+	 * Creates a new empty trie.
+	 */
+	public IdentifierPartTrie() {
+	}
+
+	/**
+	 * Sets the usage count of the argument part.
+	 * 
+	 * @param part
+	 *            The part.
+	 * @param count
+	 *            The usage count. If 0, the part is removed.
+	 */
+	public synchronized void setCount(String part, int count) {
+		int len = part.length();
+		Node[] path = new Node[len + 1];
+		Node n = root;
+		path[0] = n;
+		for (int i = 0; i < len; i++) {
+			n = count == 0 ? n.getChild(part.charAt(i)) : n.getOrCreateChild(part.charAt(i));
+			if (n == null) {
+				//not present, nothing to remove
+				return;
+			}
+			path[i + 1] = n;
+		}
+		n.count = count;
+		for (int i = len; i >= 0; i--) {
+			Node pn = path[i];
+			if (i > 0 && pn.count == 0 && pn.keys.length == 0) {
+				path[i - 1].removeChild(part.charAt(i - 1));
+				continue;
+			}
+			pn.updateMaxCount();
+		}
+	}
+
+	/**
+	 * Gets the usage count of the argument part.
+	 * 
+	 * @param part
+	 *            The part.
+	 * @return The usage count. 0 if the part haven't been added.
+	 */
+	public synchronized int getCount(String part) {
+		Node n = root.find(part);
+		return n == null ? 0 : n.count;
+	}
+
+	/**
+	 * Gets the most used parts that start with the given prefix.
+	 * <p>
+	 * The result is ordered by the usage counts in descending order. Parts with the same usage count are ordered
+	 * lexicographically.
+	 * 
+	 * @param prefix
+	 *            The prefix.
+	 * @param maxcount
+	 *            The maximum number of parts to return.
+	 * @return The parts.
+	 */
+	public synchronized List<String> getMostUsed(String prefix, int maxcount) {
+		Node start = root.find(prefix);
+		if (start == null || start.maxCount == 0 || maxcount <= 0) {
+			return Collections.emptyList();
+		}
+		List<String> result = new ArrayList<>(Math.min(maxcount, 16));
+		PriorityQueue<Candidate> queue = new PriorityQueue<>();
+		queue.add(new Candidate(prefix, start, false));
+		while (!queue.isEmpty()) {
+			Candidate c = queue.poll();
+			if (c.word) {
+				result.add(c.value);
+				if (result.size() >= maxcount) {
+					break;
+				}
+				continue;
+			}
+			Node n = c.node;
+			if (n.count > 0) {
+				queue.add(new Candidate(c.value, n, true));
+			}
+			char[] keys = n.keys;
+			for (int i = 0; i < keys.length; i++) {
+				queue.add(new Candidate(c.value + keys[i], n.children[i], false));
+			}
+		}
+		return result;
+	}
+
+	private static final class Node {
+		char[] keys = EMPTY_CHAR_ARRAY;
+		Node[] children = EMPTY_NODE_ARRAY;
+		int count;
+		int maxCount;
+
+		Node getChild(char c) {
+			int idx = Arrays.binarySearch(keys, c);
+			return idx < 0 ? null : children[idx];
+		}
+
+		void removeChild(char c) {
+			int idx = Arrays.binarySearch(keys, c);
+			int len = keys.length;
+			if (len == 1) {
+				keys = EMPTY_CHAR_ARRAY;
+				children = EMPTY_NODE_ARRAY;
+				return;
+			}
+			char[] nkeys = new char[len - 1];
+			Node[] nchildren = new Node[len - 1];
+			System.arraycopy(keys, 0, nkeys, 0, idx);
+			System.arraycopy(children, 0, nchildren, 0, idx);
+			System.arraycopy(keys, idx + 1, nkeys, idx, len - idx - 1);
+			System.arraycopy(children, idx + 1, nchildren, idx, len - idx - 1);
+			keys = nkeys;
+			children = nchildren;
+		}
+
+		void updateMaxCount() {
+			int max = count;
+			for (Node c : children) {
+				if (c.maxCount > max) {
+					max = c.maxCount;
+				}
+			}
+			maxCount = max;
+		}
+
+		Node getOrCreateChild(char c) {
+			int idx = Arrays.binarySearch(keys, c);
+			if (idx >= 0) {
+				return children[idx];
+			}
+			int insertidx = -(idx + 1);
+			int len = keys.length;
+			char[] nkeys = new char[len + 1];
+			Node[] nchildren = new Node[len + 1];
+			System.arraycopy(keys, 0, nkeys, 0, insertidx);
+			System.arraycopy(children, 0, nchildren, 0, insertidx);
+			System.arraycopy(keys, insertidx, nkeys, insertidx + 1, len - insertidx);
+			System.arraycopy(children, insertidx, nchildren, insertidx + 1, len - insertidx);
+			Node result = new Node();
+			nkeys[insertidx] = c;
+			nchildren[insertidx] = result;
+			keys = nkeys;
+			children = nchildren;
+			return result;
+		}
+
+		Node find(String s) {
+			Node n = this;
+			for (int i = 0, len = s.length(); i < len; i++) {
+				int idx = Arrays.binarySearch(n.keys, s.charAt(i));
+				if (idx < 0) {
+					return null;
+				}
+				n = n.children[idx];
+			}
+			return n;
+		}
+	}
+
+	/**
+	 * Element of the best-first search.
+	 * <p>
+	 * A subtree candidate is ordered by the maximum count and the prefix of the subtree, which are the upper bounds
+	 * for all parts in the subtree, so the parts are found in the order of the result.
+	 */
+	private static final class Candidate implements Comparable<Candidate> {
+		final String value;
+		final Node node;
+		final boolean word;
+
+		public Candidate(String value, Node node, boolean word) {
+			this.value = value;
+			this.node = node;
+			this.word = word;
+		}
+
+		private int getPriority() {
+			return word ? node.count : node.maxCount;
+		}
+
+		@Override
+		public int compareTo(Candidate o) {
+			int cmp = Integer.compare(o.getPriority(), getPriority());
+			if (cmp != 0) {
+				return cmp;
+			}
+			cmp = value.compareTo(o.value);
+			if (cmp != 0) {
+				return cmp;
+			}
+			return Boolean.compare(word, o.word);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, insertion ordered set of identifier parts backed by an array.
+ * <p>
+ * Compilation identifiers usually consist of only a few parts, therefore the set uses linear search for lookups. If
+ * there are more parts than {@link #HASH_THRESHOLD}, an open addressing hash table is also created for the lookups.
+ * <p>
+ * The set uses significantly less memory than a {@link java.util.LinkedHashSet LinkedHashSet} for small sizes.
+ */
+final class ImmutablePartSet extends AbstractSet<String> {
+	private static final int HASH_THRESHOLD = 8;
+
+	private final String[] elements;
+	/**
+	 * The hash table containing the indices of the elements, offset by 1. The value 0 means an empty slot.
+	 * <p>
+	 * <code>null</code> if the number of elements doesn't exceed {@link #HASH_THRESHOLD}.
+	 */
+	private final int[] table;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param elements
+	 *            The distinct elements. The array is not copied.
+	 */
+	public ImmutablePartSet(String[] elements) {
+		this.elements = elements;
+		if (elements.length > HASH_THRESHOLD) {
+			int[] table = new int[Integer.highestOneBit(elements.length * 2 - 1) << 1];
+			int mask = table.length - 1;
+			for (int i = 0; i < elements.length; i++) {
+				int slot = mix(elements[i].hashCode()) & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = i + 1;
+			}
+			this.table = table;
+		} else {
+			this.table = null;
+		}
+	}
+
+	@Override
+	public int size() {
+		return elements.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return elements.length == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof String)) {
+			return false;
+		}
+		int[] table = this.table;
+		if (table == null) {
+			for (String e : elements) {
+				if (e.equals(o)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		int mask = table.length - 1;
+		for (int slot = mix(o.hashCode()) & mask;; slot = (slot + 1) & mask) {
+			int idx = table[slot];
+			if (idx == 0) {
+				return false;
+			}
+			if (elements[idx - 1].equals(o)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < elements.length;
+			}
+
+			@Override
+			public String next() {
+				if (index >= elements.length) {
+					throw new NoSuchElementException();
+				}
+				return elements[index++];
+			}
+		};
+	}
+
+	@Override
+	public void forEach(Consumer<? super String> action) {
+		for (String e : elements) {
+			action.accept(e);
+		}
+	}
+
+	@Override
+	public Object[] toArray() {
+		return Arrays.copyOf(elements, elements.length, Object[].class);
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
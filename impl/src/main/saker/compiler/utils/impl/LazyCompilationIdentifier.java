@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Set;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerUtilsMetricsListener;
+
+/**
+ * Compilation identifier that only holds its string representation, and creates the part set when first needed.
+ * <p>
+ * Instances are only created for inputs that are already in normalized form, i.e. they consist of lower case, non
+ * empty, distinct parts, so the string representation is the same as the {@link #toString()} of the corresponding
+ * {@link CompilationIdentifierImpl}. The {@link #hashCode()} is computed during the validation scan without creating
+ * the part strings.
+ * <p>
+ * The {@linkplain #fingerprint() fingerprint}, the {@linkplain #toCanonicalString() canonical string} and the
+ * {@linkplain #getOutputDirectoryName() output directory name} are computed from the string representation without
+ * resolving the identifier.
+ * <p>
+ * The identifier is serialized as the resolved {@link CompilationIdentifierImpl}.
+ */
+public final class LazyCompilationIdentifier implements CompilationIdentifier, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The maximum number of parts for which the duplicates are checked by the validation scan.
+	 * <p>
+	 * The duplicate check compares each part to all preceding parts. Inputs with more parts are parsed eagerly.
+	 */
+	private static final int MAX_LAZY_PART_COUNT = 16;
+
+	private final String value;
+	private final int hashCode;
+	private transient volatile CompilationIdentifierImpl resolved;
+
+	private LazyCompilationIdentifier(String value, int hashCode) {
+		this.value = value;
+		this.hashCode = hashCode;
+	}
+
+	/**
+	 * Creates a compilation identifier for the argument string that defers the creation of the part set if possible.
+	 * <p>
+	 * If the argument is not in normalized form, it is parsed the same way as
+	 * {@link CompilationIdentifierImpl#valueOf(String)}.
+	 * <p>
+	 * The validation scan is reported to the metrics listener as a parse.
+	 * 
+	 * @param id
+	 *            The identifier string.
+	 * @return The compilation identifier.
+	 * @throws NullPointerException
+	 *             If the argument is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             If the argument is not a valid compilation identifier.
+	 */
+	public static CompilationIdentifier valueOf(String id) throws NullPointerException, IllegalArgumentException {
+		Objects.requireNonNull(id, "id");
+		CompilerUtilsMetricsListener listener = MetricsSupport.getListener();
+		long starttime = listener == null ? 0 : System.nanoTime();
+		LazyCompilationIdentifier result = scan(id);
+		if (result == null) {
+			//the eager parsing reports the metrics itself
+			return CompilationIdentifierImpl.valueOf(id);
+		}
+		if (listener != null) {
+			listener.identifierParsed(System.nanoTime() - starttime);
+		}
+		return result;
+	}
+
+	/**
+	 * Validates the argument and creates the lazy identifier if it is in normalized form.
+	 * 
+	 * @return The identifier or <code>null</code> if the argument needs to be parsed eagerly.
+	 */
+	private static LazyCompilationIdentifier scan(String id) {
+		int len = id.length();
+		int hash = 0;
+		int parthash = 0;
+		int partstart = 0;
+		int partcount = 0;
+		for (int i = 0; i < len; i++) {
+			char c = id.charAt(i);
+			if (c == '-') {
+				if (i == partstart || ++partcount > MAX_LAZY_PART_COUNT || isDuplicatePart(id, partstart, i)) {
+					return null;
+				}
+				hash += parthash;
+				parthash = 0;
+				partstart = i + 1;
+				continue;
+			}
+			if ((c >= 'A' && c <= 'Z') || !CompilationIdentifierImpl.isIdentifierPartChar(c)) {
+				return null;
+			}
+			parthash = 31 * parthash + c;
+		}
+		if (partstart == len || ++partcount > MAX_LAZY_PART_COUNT || isDuplicatePart(id, partstart, len)) {
+			return null;
+		}
+		hash += parthash;
+		return new LazyCompilationIdentifier(id, hash);
+	}
+
+	/**
+	 * Gets the eagerly constructed identifier that equals to this.
+	 * 
+	 * @return The identifier.
+	 */
+	public CompilationIdentifierImpl resolve() {
+		CompilationIdentifierImpl result = resolved;
+		if (result == null) {
+			result = (CompilationIdentifierImpl) CompilationIdentifierImpl.valueOf(value);
+			resolved = result;
+		}
+		return result;
+	}
+
+	@Override
+	public Set<String> getParts() {
+		return resolve().getParts();
+	}
+
+	@Override
+	public long fingerprint() {
+		CompilationIdentifierImpl r = resolved;
+		if (r != null) {
+			return r.fingerprint();
+		}
+		return IdentifierFingerprint.ofJoined(value);
+	}
+
+	@Override
+	public String toCanonicalString() {
+		CompilationIdentifierImpl r = resolved;
+		if (r != null) {
+			return r.toCanonicalString();
+		}
+		int[] starts = new int[MAX_LAZY_PART_COUNT];
+		int[] ends = new int[MAX_LAZY_PART_COUNT];
+		int count = 0;
+		for (int start = 0, len = value.length(); start <= len; ++count) {
+			int end = value.indexOf('-', start);
+			if (end < 0) {
+				end = len;
+			}
+			starts[count] = start;
+			ends[count] = end;
+			start = end + 1;
+		}
+		boolean sorted = true;
+		//insertion sort, as there are only a few parts
+		for (int i = 1; i < count; i++) {
+			int s = starts[i];
+			int e = ends[i];
+			int j = i - 1;
+			for (; j >= 0 && compareRegions(value, starts[j], ends[j], s, e) > 0; --j) {
+				starts[j + 1] = starts[j];
+				ends[j + 1] = ends[j];
+				sorted = false;
+			}
+			starts[j + 1] = s;
+			ends[j + 1] = e;
+		}
+		if (sorted) {
+			return value;
+		}
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append('-');
+			}
+			sb.append(value, starts[i], ends[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the output directory name of this identifier.
+	 * 
+	 * @return The output directory name.
+	 * @see CompilationIdentifierImpl#toOutputDirectoryName(String)
+	 */
+	public String getOutputDirectoryName() {
+		CompilationIdentifierImpl r = resolved;
+		if (r != null) {
+			return r.getOutputDirectoryName();
+		}
+		return CompilationIdentifierImpl.toOutputDirectoryName(toCanonicalString());
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof LazyCompilationIdentifier) {
+			LazyCompilationIdentifier other = (LazyCompilationIdentifier) obj;
+			if (hashCode != other.hashCode) {
+				return false;
+			}
+			return value.equals(other.value) || resolve().equals(other.resolve());
+		}
+		if (!(obj instanceof CompilationIdentifier)) {
+			return false;
+		}
+		if (hashCode != obj.hashCode()) {
+			return false;
+		}
+		if (obj instanceof CompilationIdentifierImpl && value.equals(obj.toString())) {
+			//same parts in the same order
+			return true;
+		}
+		return resolve().equals(obj);
+	}
+
+	@Override
+	public String toString() {
+		return value;
+	}
+
+	private Object writeReplace() {
+		return resolve();
+	}
+
+	/**
+	 * Compares the regions of the argument string the same way as {@link String#compareTo(String)}.
+	 */
+	private static int compareRegions(String s, int start1, int end1, int start2, int end2) {
+		int len1 = end1 - start1;
+		int len2 = end2 - start2;
+		int lim = Math.min(len1, len2);
+		for (int k = 0; k < lim; k++) {
+			char c1 = s.charAt(start1 + k);
+			char c2 = s.charAt(start2 + k);
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+		}
+		return len1 - len2;
+	}
+
+	/**
+	 * Checks if the part in the given range is the same as any of the parts preceding it.
+	 */
+	private static boolean isDuplicatePart(String id, int start, int end) {
+		int partlen = end - start;
+		int prevstart = 0;
+		for (int i = 0; i < start; i++) {
+			if (id.charAt(i) != '-') {
+				continue;
+			}
+			if (i - prevstart == partlen && id.regionMatches(prevstart, id, start, partlen)) {
+				return true;
+			}
+			prevstart = i + 1;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+import java.util.Collection;
+
+import saker.compiler.utils.api.CompilerUtilsMetricsListener;
+
+/**
+ * Holds the currently installed metrics listener.
+ * <p>
+ * The instrumented operations call {@link #getListener()}, and only report the metrics if it is non-<code>null</code>.
+ * Multiple listeners are combined into a single one.
+ */
+public final class MetricsSupport {
+	private static volatile CompilerUtilsMetricsListener listener;
+
+	private MetricsSupport() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the metrics listener.
+	 * 
+	 * @return The listener or <code>null</code> if metrics collection is disabled.
+	 */
+	public static CompilerUtilsMetricsListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Sets the listeners that should receive the metrics.
+	 * 
+	 * @param listeners
+	 *            The listeners. Copied by this method.
+	 */
+	public static void setListeners(Collection<? extends CompilerUtilsMetricsListener> listeners) {
+		switch (listeners.size()) {
+			case 0: {
+				listener = null;
+				break;
+			}
+			case 1: {
+				listener = listeners.iterator().next();
+				break;
+			}
+			default: {
+				listener = new CompositeMetricsListener(
+						listeners.toArray(new CompilerUtilsMetricsListener[listeners.size()]));
+				break;
+			}
+		}
+	}
+
+	private static final class CompositeMetricsListener implements CompilerUtilsMetricsListener {
+		private final CompilerUtilsMetricsListener[] listeners;
+
+		public CompositeMetricsListener(CompilerUtilsMetricsListener[] listeners) {
+			this.listeners = listeners;
+		}
+
+		@Override
+		public void identifierParsed(long nanos) {
+			for (CompilerUtilsMetricsListener l : listeners) {
+				l.identifierParsed(nanos);
+			}
+		}
+
+		@Override
+		public void identifierParseFailed() {
+			for (CompilerUtilsMetricsListener l : listeners) {
+				l.identifierParseFailed();
+			}
+		}
+
+		@Override
+		public void identifiersConcatenated() {
+			for (CompilerUtilsMetricsListener l : listeners) {
+				l.identifiersConcatenated();
+			}
+		}
+
+		@Override
+		public void identifiersMergeChecked(boolean result) {
+			for (CompilerUtilsMetricsListener l : listeners) {
+				l.identifiersMergeChecked(result);
+			}
+		}
+
+		@Override
+		public void languagesMergeChecked(boolean result) {
+			for (CompilerUtilsMetricsListener l : listeners) {
+				l.languagesMergeChecked(result);
+			}
+		}
+
+		@Override
+		public void identifierSerialized(int bytes) {
+			for (CompilerUtilsMetricsListener l : listeners) {
+				l.identifierSerialized(bytes);
+			}
+		}
+	}
+}
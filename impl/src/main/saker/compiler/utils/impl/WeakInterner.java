@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.compiler.utils.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent interner that holds the canonical instances weakly.
+ * <p>
+ * The interner is backed by a {@link ConcurrentHashMap}, so lookups are lock-free, and insertions only contend on the
+ * same hash bin. Entries are removed when the canonical instance is garbage collected.
+ * <p>
+ * The equivalence of the objects can be customized by specifying the hash and equality functions.
+ *
+ * @param <T>
+ *            The type of the interned objects.
+ */
+public final class WeakInterner<T> {
+	private final ConcurrentHashMap<Object, InternedReference<T>> references = new ConcurrentHashMap<>();
+	private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+	private final ToIntFunction<? super T> hasher;
+	private final BiPredicate<? super T, ? super T> equality;
+
+	public WeakInterner() {
+		this(Object::hashCode, Object::equals);
+	}
+
+	public WeakInterner(ToIntFunction<? super T> hasher, BiPredicate<? super T, ? super T> equality) {
+		Objects.requireNonNull(hasher, "hasher");
+		Objects.requireNonNull(equality, "equality");
+		this.hasher = hasher;
+		this.equality = equality;
+	}
+
+	/**
+	 * Gets the canonical instance that equals to the argument.
+	 * <p>
+	 * If there is no canonical instance yet, the canonicalizer is called with the argument, and its result is added as
+	 * the canonical instance. The canonicalizer may be called multiple times if there is a concurrent insertion.
+	 *
+	 * @param value
+	 *            The value to intern.
+	 * @param canonicalizer
+	 *            The function to create the canonical instance if not yet present.
+	 * @return The canonical instance.
+	 */
+	public T intern(T value, UnaryOperator<T> canonicalizer) {
+		expungeStaleEntries();
+		int hash = hasher.applyAsInt(value);
+		InternedReference<T> found = references.get(new LookupKey<>(value, hash, equality));
+		while (true) {
+			if (found != null) {
+				T result = found.get();
+				if (result != null) {
+					return result;
+				}
+				//cleared, but not yet expunged
+				references.remove(found, found);
+			}
+			T canonical = canonicalizer.apply(value);
+			InternedReference<T> ref = new InternedReference<>(canonical, hash, queue, equality);
+			found = references.putIfAbsent(ref, ref);
+			if (found == null) {
+				return canonical;
+			}
+		}
+	}
+
+	private void expungeStaleEntries() {
+		for (Reference<? extends T> ref; (ref = queue.poll()) != null;) {
+			references.remove(ref, ref);
+		}
+	}
+
+	private static final class LookupKey<T> {
+		private final T value;
+		private final int hash;
+		private final BiPredicate<? super T, ? super T> equality;
+
+		public LookupKey(T value, int hash, BiPredicate<? super T, ? super T> equality) {
+			this.value = value;
+			this.hash = hash;
+			this.equality = equality;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof InternedReference)) {
+				return false;
+			}
+			@SuppressWarnings("unchecked")
+			T other = ((InternedReference<T>) obj).get();
+			return other != null && equality.test(value, other);
+		}
+	}
+
+	private static final class InternedReference<T> extends WeakReference<T> {
+		private final int hash;
+		private final BiPredicate<? super T, ? super T> equality;
+
+		public InternedReference(T referent, int hash, ReferenceQueue<? super T> q,
+				BiPredicate<? super T, ? super T> equality) {
+			super(referent, q);
+			this.hash = hash;
+			this.equality = equality;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof InternedReference)) {
+				return false;
+			}
+			T value = get();
+			if (value == null) {
+				return false;
+			}
+			@SuppressWarnings("unchecked")
+			T other = ((InternedReference<T>) obj).get();
+			return other != null && equality.test(value, other);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerLanguage;
+import saker.compiler.utils.api.CompilerUtils;
+
+/**
+ * Benchmarks for the {@link CompilationIdentifier} and {@link CompilerUtils} operations.
+ * <p>
+ * The subclasses specify the number of threads the benchmarks are run with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractCompilationIdentifierBenchmark {
+	@Param({ "1", "4", "16" })
+	public int partCount;
+
+	private String idString;
+	private String reverseIdString;
+	private CompilationIdentifier id;
+	private CompilationIdentifier reverseId;
+	private CompilationIdentifier firstHalf;
+	private CompilationIdentifier secondHalf;
+	private CompilationIdentifier optionsId;
+	private CompilationIdentifier foreignId;
+	private byte[] serializedId;
+	private CompilerLanguage targetLanguage = CompilerLanguage.valueOf("Java");
+	private CompilerLanguage optionsLanguage = CompilerLanguage.valueOf("JAVA");
+
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		StringBuilder reversesb = new StringBuilder();
+		for (int i = 0; i < partCount; i++) {
+			if (i > 0) {
+				sb.append('-');
+				reversesb.insert(0, '-');
+			}
+			String part = "Part" + i;
+			sb.append(part);
+			reversesb.insert(0, part);
+		}
+		idString = sb.toString();
+		reverseIdString = reversesb.toString();
+		id = CompilationIdentifier.valueOf(idString);
+		reverseId = CompilationIdentifier.valueOf(reverseIdString);
+
+		int half = Math.max(1, partCount / 2);
+		firstHalf = CompilationIdentifier.valueOf(idString.substring(0, indexOfPart(idString, half)));
+		secondHalf = half < partCount ? CompilationIdentifier.valueOf(idString.substring(indexOfPart(idString, half)))
+				: firstHalf;
+		optionsId = secondHalf;
+		foreignId = new ForeignCompilationIdentifier(id.getParts());
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(id);
+		}
+		serializedId = baos.toByteArray();
+	}
+
+	@Benchmark
+	public CompilationIdentifier valueOfString() {
+		return CompilationIdentifier.valueOf(idString);
+	}
+
+	@Benchmark
+	public CompilationIdentifier valueOfIdentifier() {
+		return CompilationIdentifier.valueOf(id);
+	}
+
+	@Benchmark
+	public CompilationIdentifier valueOfForeignIdentifier() {
+		return CompilationIdentifier.valueOf(foreignId);
+	}
+
+	@Benchmark
+	public CompilationIdentifier concat() {
+		return CompilationIdentifier.concat(firstHalf, secondHalf);
+	}
+
+	@Benchmark
+	public int identifierHashCode() {
+		return id.hashCode();
+	}
+
+	@Benchmark
+	public boolean identifierEquals() {
+		return id.equals(reverseId);
+	}
+
+	@Benchmark
+	public boolean identifierEqualsForeign() {
+		return id.equals(foreignId);
+	}
+
+	@Benchmark
+	public boolean canMergeIdentifiers() {
+		return CompilerUtils.canMergeIdentifiers(id, optionsId);
+	}
+
+	@Benchmark
+	public boolean canMergeLanguages() {
+		return CompilerUtils.canMergeLanguages("Java", "JAVA");
+	}
+
+	@Benchmark
+	public boolean canMergeCompilerLanguages() {
+		return CompilerUtils.canMergeCompilerLanguages(targetLanguage, optionsLanguage);
+	}
+
+	@Benchmark
+	public byte[] writeExternal() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(id);
+		}
+		return baos.toByteArray();
+	}
+
+	@Benchmark
+	public Object readExternal() throws IOException, ClassNotFoundException {
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedId))) {
+			return ois.readObject();
+		}
+	}
+
+	private static int indexOfPart(String id, int partindex) {
+		int idx = 0;
+		for (int i = 0; i < partindex; i++) {
+			idx = id.indexOf('-', idx) + 1;
+			if (idx == 0) {
+				return id.length();
+			}
+		}
+		return idx;
+	}
+}
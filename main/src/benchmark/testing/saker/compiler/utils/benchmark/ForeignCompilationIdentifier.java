@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.benchmark;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+
+/**
+ * {@link CompilationIdentifier} implementation that is not provided by the library.
+ */
+final class ForeignCompilationIdentifier implements CompilationIdentifier {
+	private final Set<String> parts;
+
+	public ForeignCompilationIdentifier(Set<String> parts) {
+		this.parts = new LinkedHashSet<>(parts);
+	}
+
+	@Override
+	public Set<String> getParts() {
+		return parts;
+	}
+
+	@Override
+	public int hashCode() {
+		return parts.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof CompilationIdentifier && parts.equals(((CompilationIdentifier) obj).getParts());
+	}
+
+	@Override
+	public String toString() {
+		return String.join("-", parts);
+	}
+}
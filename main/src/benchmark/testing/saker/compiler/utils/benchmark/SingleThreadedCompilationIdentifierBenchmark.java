@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs the benchmarks on a single thread.
+ */
+@Threads(1)
+public class SingleThreadedCompilationIdentifierBenchmark extends AbstractCompilationIdentifierBenchmark {
+}
@@ -16,6 +16,7 @@
 package saker.compiler.utils.main;
 
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import saker.build.scripting.model.info.TypeInformationKind;
 import saker.compiler.utils.api.CompilationIdentifier;
@@ -34,7 +35,20 @@ import saker.nest.scriptinfo.reflection.annot.NestTypeInformation;
 		+ "may be different based on task implementations.")
 @NestTypeInformation(kind = TypeInformationKind.LITERAL)
 public final class CompilationIdentifierTaskOption {
-	private CompilationIdentifier identifier;
+	/**
+	 * The maximum number of literals in {@link #LITERAL_CACHE}.
+	 */
+	private static final int MAX_LITERAL_CACHE_SIZE = 1024;
+	/**
+	 * Task options mapped by the literals they were parsed from.
+	 * <p>
+	 * The bundle classes are loaded separately for each build environment, so the cache is shared by the builds that
+	 * run in the same environment.
+	 */
+	private static final ConcurrentHashMap<String, CompilationIdentifierTaskOption> LITERAL_CACHE =
+			new ConcurrentHashMap<>();
+
+	private final CompilationIdentifier identifier;
 
 	public CompilationIdentifierTaskOption(CompilationIdentifier identifier) {
 		this.identifier = identifier;
@@ -52,11 +66,23 @@ public final class CompilationIdentifierTaskOption {
 	public static CompilationIdentifierTaskOption valueOf(CompilationIdentifier compilationid) {
 		Objects.requireNonNull(compilationid, "compilation identifier");
 		//clone in order to validate. CompilationIdentifier may be implemented by others in a non conforming way
+		//identifiers created by the library are returned as is by CompilationIdentifier.valueOf
 		return new CompilationIdentifierTaskOption(CompilationIdentifier.valueOf(compilationid));
 	}
 
 	public static CompilationIdentifierTaskOption valueOf(String id) {
-		return new CompilationIdentifierTaskOption(CompilationIdentifier.valueOf(id));
+		Objects.requireNonNull(id, "id");
+		CompilationIdentifierTaskOption result = LITERAL_CACHE.get(id);
+		if (result != null) {
+			return result;
+		}
+		result = new CompilationIdentifierTaskOption(CompilationIdentifier.valueOf(id));
+		if (LITERAL_CACHE.size() >= MAX_LITERAL_CACHE_SIZE) {
+			//the cache is only cleared if the literals vary a lot, in which case caching is not that beneficial
+			LITERAL_CACHE.clear();
+		}
+		CompilationIdentifierTaskOption prev = LITERAL_CACHE.putIfAbsent(id, result);
+		return prev == null ? result : prev;
 	}
 
 	public static CompilationIdentifier getIdentifier(CompilationIdentifierTaskOption taskoption) {
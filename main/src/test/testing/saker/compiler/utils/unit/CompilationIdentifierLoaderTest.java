@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilationIdentifierLoader;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class CompilationIdentifierLoaderTest extends SakerTestCase {
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		String input = "first-id\r\n  Second \n\n-\nthird.x\nbad!id\n" + repeat("long-", 100) + "end";
+		List<CompilationIdentifier> expected = Arrays.asList(cid("first-id"), cid("second"), cid("third.x"),
+				cid(repeat("long-", 100) + "end"));
+
+		CompilationIdentifierLoader loader = new CompilationIdentifierLoader();
+		assertResult(loader.load(new StringReader(input)), expected);
+		assertResult(loader.load(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8))), expected);
+
+		ByteBuffer offsetbuf = ByteBuffer.wrap(("xx" + input).getBytes(StandardCharsets.UTF_8));
+		offsetbuf.position(2);
+		assertResult(loader.load(offsetbuf), expected);
+		assertEquals(offsetbuf.position(), 2);
+
+		Path tempfile = Files.createTempFile("identifiers", ".txt");
+		try {
+			Files.write(tempfile, input.getBytes(StandardCharsets.UTF_8));
+			assertResult(loader.load(tempfile), expected);
+		} finally {
+			Files.deleteIfExists(tempfile);
+		}
+
+		CompilationIdentifierLoader commaloader = new CompilationIdentifierLoader(',');
+		CompilationIdentifierLoader.Result result = commaloader.load(new StringReader("a-b, c ,,a\u00e1"));
+		assertEquals(result.getIdentifiers(), Arrays.asList(cid("a-b"), cid("c")));
+		assertEquals(result.getErrors().size(), 1);
+		assertEquals(result.getErrors().get(0).getOffset(), 9L);
+
+		//byte order mark at the start is skipped, but counted in the offsets
+		String bominput = "\uFEFFc-d\nbad!";
+		result = loader.load(new StringReader(bominput));
+		assertEquals(result.getIdentifiers(), Arrays.asList(cid("c-d")));
+		assertEquals(result.getErrors().size(), 1);
+		assertEquals(result.getErrors().get(0).getOffset(), 5L);
+		byte[] bombytes = bominput.getBytes(StandardCharsets.UTF_8);
+		result = loader.load(ByteBuffer.wrap(bombytes));
+		assertEquals(result.getIdentifiers(), Arrays.asList(cid("c-d")));
+		assertEquals(result.getErrors().size(), 1);
+		assertEquals(result.getErrors().get(0).getOffset(), 7L);
+		tempfile = Files.createTempFile("identifiers", ".txt");
+		try {
+			Files.write(tempfile, bombytes);
+			assertEquals(loader.load(tempfile).getIdentifiers(), Arrays.asList(cid("c-d")));
+		} finally {
+			Files.deleteIfExists(tempfile);
+		}
+		assertEquals(loader.load(new StringReader("\uFEFF")).getIdentifiers().size(), 0);
+
+		assertEquals(loader.load(new StringReader("")).getIdentifiers().size(), 0);
+		assertException(IllegalArgumentException.class, () -> new CompilationIdentifierLoader('a'));
+		assertException(IllegalArgumentException.class, () -> new CompilationIdentifierLoader('-'));
+	}
+
+	private static void assertResult(CompilationIdentifierLoader.Result result, List<CompilationIdentifier> expected) {
+		assertEquals(result.getIdentifiers(), expected);
+		assertEquals(result.getErrors().size(), 2);
+		assertEquals(result.getErrors().get(0).getOffset(), 21L);
+		assertEquals(result.getErrors().get(0).getEntry(), "-");
+		assertEquals(result.getErrors().get(1).getOffset(), 31L);
+		assertEquals(result.getErrors().get(1).getEntry(), "bad!id");
+	}
+
+	private static String repeat(String s, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	private static CompilationIdentifier cid(String s) {
+		return CompilationIdentifier.valueOf(s);
+	}
+
+}
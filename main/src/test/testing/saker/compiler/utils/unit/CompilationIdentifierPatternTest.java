@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilationIdentifierPattern;
+import saker.compiler.utils.api.CompilerUtils;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class CompilationIdentifierPatternTest extends SakerTestCase {
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		assertEquals(pattern("X86|x64--Release").toString(), "x86|x64-release");
+		assertEquals(pattern("debug-*"), pattern("DEBUG-*"));
+
+		assertTrue(pattern("debug-*").matches(cid("debug")));
+		assertTrue(pattern("debug-*").matches(cid("main-debug")));
+		assertFalse(pattern("debug-*").matches(cid("main-release")));
+		assertTrue(pattern("x86|x64-release").matches(cid("main-x64-release")));
+		assertTrue(pattern("x86|x64-release").matches(cid("x86-release")));
+		assertFalse(pattern("x86|x64-release").matches(cid("arm-release")));
+		assertFalse(pattern("x86|x64-release").matches(cid("x86-debug")));
+		assertTrue(pattern("lib*-release").matches(cid("release-libmain")));
+		assertTrue(pattern("lib*-release").matches(cid("release-lib")));
+		assertFalse(pattern("lib*-release").matches(cid("release-mainlib")));
+		assertTrue(pattern("*lib*").matches(cid("mainlibx")));
+		assertTrue(pattern("a*b*c").matches(cid("aXbYbZc")));
+		assertFalse(pattern("a*b*c").matches(cid("aXbYbZ")));
+		assertTrue(pattern("a**").matches(cid("a")));
+
+		assertTrue(CompilerUtils.canMergeIdentifierPattern(cid("my-id"), null));
+		assertTrue(CompilerUtils.canMergeIdentifierPattern(null, null));
+		assertFalse(CompilerUtils.canMergeIdentifierPattern(null, pattern("my")));
+		//patterns without wildcards work the same way as identifiers
+		List<String> targets = Arrays.asList("my-id", "my", "id", "other-id", "my-x-id");
+		for (String t : targets) {
+			for (String o : targets) {
+				assertEquals(CompilerUtils.canMergeIdentifierPattern(cid(t), pattern(o)),
+						CompilerUtils.canMergeIdentifiers(cid(t), cid(o)));
+			}
+		}
+
+		List<CompilationIdentifierPattern> patterns = Arrays.asList(pattern("debug-*"), pattern("x86|x64-release"),
+				pattern("lib*-release"), pattern("release"), pattern("x86|lib*"));
+		CompilationIdentifierPattern.Matcher matcher = CompilationIdentifierPattern.compile(patterns);
+		assertEquals(matcher.getPatternCount(), 5);
+		for (String t : Arrays.asList("debug", "x86-release", "libmain-x64-release", "lib-debug", "arm-release",
+				"x64", "main")) {
+			BitSet expected = new BitSet();
+			for (int i = 0; i < patterns.size(); i++) {
+				if (patterns.get(i).matches(cid(t))) {
+					expected.set(i);
+				}
+			}
+			assertEquals(matcher.match(cid(t)), expected);
+		}
+		assertEquals(CompilationIdentifierPattern.compile(Arrays.asList()).match(cid("x")), new BitSet());
+
+		assertException(IllegalArgumentException.class, () -> pattern(""));
+		assertException(IllegalArgumentException.class, () -> pattern("-"));
+		assertException(IllegalArgumentException.class, () -> pattern("a||b"));
+		assertException(IllegalArgumentException.class, () -> pattern("a|"));
+		assertException(IllegalArgumentException.class, () -> pattern("|a"));
+		assertEquals(pattern("-a|b|C--d-").toString(), "a|b|c-d");
+		assertException(IllegalArgumentException.class, () -> pattern("a!"));
+	}
+
+	private static CompilationIdentifierPattern pattern(String s) {
+		return CompilationIdentifierPattern.valueOf(s);
+	}
+
+	private static CompilationIdentifier cid(String s) {
+		return CompilationIdentifier.valueOf(s);
+	}
+
+}
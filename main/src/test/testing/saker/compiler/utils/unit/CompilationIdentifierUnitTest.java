@@ -15,9 +15,25 @@
  */
 package testing.saker.compiler.utils.unit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilationOutputRegistry;
+import saker.compiler.utils.api.CompilerUtils;
+import saker.compiler.utils.main.CompilationIdentifierTaskOption;
 import testing.saker.SakerTest;
 import testing.saker.SakerTestCase;
 
@@ -32,16 +48,184 @@ public class CompilationIdentifierUnitTest extends SakerTestCase {
 		assertEquals(cid("my-id"), CompilationIdentifier.concat(cid("my-id"), null));
 		assertEquals(cid("my-id"), CompilationIdentifier.concat(null, cid("my-id")));
 		assertEquals(null, CompilationIdentifier.concat(null, null));
+		assertEquals(cid("my-id-x"), CompilationIdentifier.concat(cid("my"), null, cid("id"), cid("x-my")));
+		assertEquals(cid("my-id-x").toString(),
+				CompilationIdentifier.concat(Arrays.asList(cid("my"), cid("id"), cid("x-id"))).toString());
+		assertEquals(null, CompilationIdentifier.concat(new CompilationIdentifier[] { null, null }));
+		assertEquals(cid("my-id-x"),
+				CompilationIdentifier.builder().add(cid("my-id")).add(null).add(cid("id-x")).build());
+		assertException(IllegalArgumentException.class, () -> CompilationIdentifier.builder().build());
+
+		CompilationIdentifier myidx = cid("my-id-x");
+		assertTrue(myidx == CompilationIdentifier.concat(myidx, cid("id")));
+		assertTrue(myidx == CompilationIdentifier.concat(myidx, cid("x-my"), cid("id")));
 
 		assertEquals(cid("my-id").toString(), "my-id");
 		assertEquals(cid("id-my").toString(), "id-my");
+		assertEquals(cid("my-id").toCanonicalString(), "id-my");
+		assertEquals(cid("id-my").toCanonicalString(), "id-my");
+		assertEquals(cid("my-id").hashCode(), cid("id-my").hashCode());
+		assertEquals(cid("my-id").hashCode(), cid("my-id").getParts().hashCode());
 
 		assertEquals(cid("my-id"), cid("---my----id---"));
 		assertEquals(cid("my-id"), cid("id-my"));
 
+		CompilationIdentifier myid = cid("my-id");
+		assertTrue(myid == cid("MY-id"));
+		assertTrue(myid != cid("id-my"));
+		assertEquals(myid, cid("id-my"));
+		assertTrue(myid == CompilationIdentifier.concat(cid("my"), cid("id")));
+		assertTrue(myid == CompilationIdentifier.valueOf(myid));
+
 		assertException(IllegalArgumentException.class, () -> cid(""));
 		assertException(NullPointerException.class, () -> cid(null));
 		assertException(IllegalArgumentException.class, () -> cid("!!!-my-id"));
+		assertException(IllegalArgumentException.class, () -> cid("my-i d"));
+		assertException(IllegalArgumentException.class, () -> cid("---"));
+
+		assertEquals(cid("my-id").toString(), CompilationIdentifier.valueOf(new StringBuilder("My-Id")).toString());
+		assertEquals(cid("my-id").toString(), CompilationIdentifier.valueOf("x-MY-id-x".toCharArray(), 2, 5).toString());
+		assertEquals(cid("a(1)-[b]-@c_.d").toString(), "a(1)-[b]-@c_.d");
+		assertException(IndexOutOfBoundsException.class, () -> CompilationIdentifier.valueOf(new char[3], 2, 2));
+
+		assertEquals(new ArrayList<>(cid("c-a-b-a").getParts()), Arrays.asList("c", "a", "b"));
+		assertTrue(cid("c-a-b").getParts().contains("a"));
+		assertFalse(cid("c-a-b").getParts().contains("d"));
+		assertException(UnsupportedOperationException.class, () -> cid("c-a-b").getParts().add("d"));
+		StringBuilder manyparts = new StringBuilder();
+		List<String> manypartslist = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			manyparts.append("p").append(i).append('-');
+			manypartslist.add("p" + i);
+		}
+		Set<String> manypartset = cid(manyparts.toString()).getParts();
+		assertEquals(new ArrayList<>(manypartset), manypartslist);
+		assertEquals(manypartset, new HashSet<>(manypartslist));
+		for (String p : manypartslist) {
+			assertTrue(manypartset.contains(p));
+		}
+		assertFalse(manypartset.contains("p40"));
+
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("my-id")), "id-my");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("id-my")), "id-my");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("con")), "-con");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("con.x")), "-con.x");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("con-x")), "con-x");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("lpt1-x")), "lpt1-x");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("com1")), "-com1");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("..")), "..-");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("x-a.")), "a.-x");
+		assertEquals(CompilerUtils.getOutputDirectoryName(cid("x.")), "x.-");
+		assertEquals(CompilerUtils.getOutputDirectoryName(foreign("My", "x")), "my-x");
+		assertEquals(CompilerUtils.getOutputDirectoryName(foreign("..")), "..-");
+		assertException(IllegalArgumentException.class, () -> CompilerUtils.getOutputDirectoryName(foreign("a/b")));
+		assertException(IllegalArgumentException.class, () -> CompilerUtils.getOutputDirectoryName(foreign("a\\b")));
+		assertException(IllegalArgumentException.class, () -> CompilerUtils.getOutputDirectoryName(foreign("a-b")));
+
+		StringBuilder longparts = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			longparts.append("longpart").append(i).append('-');
+		}
+		CompilationIdentifier longid = cid(longparts.toString());
+		String longname = CompilerUtils.getOutputDirectoryName(longid);
+		assertEquals(longname.length(), 255);
+		assertTrue(longname.endsWith("~" + Long.toHexString(longid.fingerprint())));
+		assertTrue(longid.toCanonicalString().startsWith(longname.substring(0, longname.indexOf('~'))));
+		assertNotEquals(CompilerUtils.getOutputDirectoryName(cid(longparts + "other")), longname);
+
+		CompilationIdentifierTaskOption myidoption = CompilationIdentifierTaskOption.valueOf("my-id");
+		assertTrue(myidoption == CompilationIdentifierTaskOption.valueOf("my-id"));
+		assertTrue(CompilationIdentifierTaskOption.valueOf("my-id").getIdentifier() == cid("my-id"));
+		assertTrue(CompilationIdentifierTaskOption.valueOf(cid("my-id")).getIdentifier() == cid("my-id"));
+
+		//the fingerprints must stay the same between versions
+		assertEquals(cid("my-id").fingerprint(), 0x645f4ffb2b6451d2L);
+		assertEquals(cid("id-my").fingerprint(), 0x645f4ffb2b6451d2L);
+		assertEquals(cid("my").fingerprint(), 0xb53f5dc00d28714eL);
+		assertEquals(cid("x").fingerprint(), 0x57263a690e152bd3L);
+		assertNotEquals(cid("my-id").fingerprint(), cid("my-idx").fingerprint());
+
+		CompilationOutputRegistry outputs = new CompilationOutputRegistry();
+		assertEquals(outputs.register(cid("my-id"), "first"), null);
+		assertEquals(outputs.register(cid("id-my"), "first"), null);
+		assertEquals(outputs.register(cid("id-my"), "second"), "first");
+		assertEquals(outputs.register(cid("my"), "second"), null);
+		assertFalse(outputs.unregister(cid("my-id"), "second"));
+		assertTrue(outputs.unregister(cid("my-id"), "first"));
+		assertEquals(outputs.register(cid("id-my"), "second"), null);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(cid("my-id-x64"));
+			oos.writeObject(cid("my-id-x86"));
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+			CompilationIdentifier first = (CompilationIdentifier) ois.readObject();
+			CompilationIdentifier second = (CompilationIdentifier) ois.readObject();
+			assertTrue(first == cid("my-id-x64"));
+			assertTrue(second == cid("my-id-x86"));
+			assertEquals(first.fingerprint(), cid("x64-id-my").fingerprint());
+		}
+
+		//streams with invalid parts are rejected
+		baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(cid("my-xyz"));
+		}
+		byte[] serialized = baos.toByteArray();
+		assertException(InvalidObjectException.class, () -> readModified(serialized, "xyz", "x/z"));
+		assertException(InvalidObjectException.class, () -> readModified(serialized, "xyz", "XYZ"));
+		assertTrue(readModified(serialized, "xyz", "xyw") == cid("my-xyw"));
+		//replace the part string with a null reference (TC_NULL)
+		assertException(InvalidObjectException.class,
+				() -> readModified(serialized, new byte[] { 0x74, 0, 3, 'x', 'y', 'z' }, new byte[] { 0x70 }));
+
+		//the parts shared between identifiers are written only once
+		String sharedpart = "averylongidentifierpartthatissharedbyallidentifiers";
+		int singlesize = serializedSize(Arrays.asList(cid(sharedpart + "-x0")));
+		List<CompilationIdentifier> sharing = new ArrayList<>();
+		for (int i = 0; i <= 100; i++) {
+			sharing.add(cid(sharedpart + "-x" + i));
+		}
+		assertTrue(serializedSize(sharing) - singlesize < 100 * sharedpart.length());
+	}
+
+	private static int serializedSize(List<CompilationIdentifier> identifiers) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			for (CompilationIdentifier id : identifiers) {
+				oos.writeObject(id);
+			}
+		}
+		return baos.size();
+	}
+
+	private static Object readModified(byte[] serialized, String from, String to) throws Exception {
+		return readModified(serialized, from.getBytes(StandardCharsets.UTF_8), to.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Object readModified(byte[] serialized, byte[] from, byte[] to) throws Exception {
+		ByteArrayOutputStream modified = new ByteArrayOutputStream();
+		search:
+		for (int i = 0; i <= serialized.length - from.length; i++) {
+			for (int j = 0; j < from.length; j++) {
+				if (serialized[i + j] != from[j]) {
+					continue search;
+				}
+			}
+			modified.write(serialized, 0, i);
+			modified.write(to);
+			modified.write(serialized, i + from.length, serialized.length - i - from.length);
+			break;
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(modified.toByteArray()))) {
+			return ois.readObject();
+		}
+	}
+
+	private static CompilationIdentifier foreign(String... parts) {
+		Set<String> partset = new LinkedHashSet<>(Arrays.asList(parts));
+		return () -> partset;
 	}
 
 	public static CompilationIdentifier cid(String id) {
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerUtils;
+import saker.compiler.utils.api.CompilerUtilsMetrics;
+import saker.compiler.utils.api.CompilerUtilsMetricsListener;
+import saker.compiler.utils.api.CompilerUtilsStatisticsMXBean;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class CompilerUtilsMetricsTest extends SakerTestCase {
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		AtomicInteger parsed = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		AtomicInteger merged = new AtomicInteger();
+		AtomicInteger mergechecked = new AtomicInteger();
+		CompilerUtilsMetricsListener listener = new CompilerUtilsMetricsListener() {
+			@Override
+			public void identifierParsed(long nanos) {
+				parsed.incrementAndGet();
+			}
+
+			@Override
+			public void identifierParseFailed() {
+				failed.incrementAndGet();
+			}
+
+			@Override
+			public void identifiersMergeChecked(boolean result) {
+				mergechecked.incrementAndGet();
+				if (result) {
+					merged.incrementAndGet();
+				}
+			}
+		};
+		CompilerUtilsMetrics.addListener(listener);
+		try {
+			CompilationIdentifier myid = CompilationIdentifier.valueOf("my-id");
+			assertException(IllegalArgumentException.class, () -> CompilationIdentifier.valueOf("!"));
+			CompilerUtils.canMergeIdentifiers(myid, CompilationIdentifier.valueOf("my"));
+			CompilerUtils.canMergeIdentifiers(myid, CompilationIdentifier.valueOf("other"));
+		} finally {
+			assertTrue(CompilerUtilsMetrics.removeListener(listener));
+		}
+		//the listeners are JVM global, other concurrently running code may report to them as well
+		assertTrue(parsed.get() >= 3);
+		assertTrue(failed.get() >= 1);
+		assertTrue(mergechecked.get() >= 2);
+		assertTrue(merged.get() >= 1);
+		assertTrue(mergechecked.get() - merged.get() >= 1);
+
+		int parsedcount = parsed.get();
+		CompilationIdentifier.valueOf("not-counted");
+		assertEquals(parsed.get(), parsedcount);
+
+		CompilerUtilsStatisticsMXBean stats = CompilerUtilsMetrics.registerMBean();
+		try {
+			stats.reset();
+			CompilerUtils.canMergeLanguages("java", "JAVA");
+			CompilerUtils.canMergeLanguages("java", "c");
+			long checkcount = stats.getLanguageMergeCheckCount();
+			long hitcount = stats.getLanguageMergeHitCount();
+			assertTrue(checkcount >= 2);
+			assertTrue(hitcount >= 1);
+			assertTrue(checkcount - hitcount >= 1);
+			assertTrue((Long) ManagementFactory.getPlatformMBeanServer().getAttribute(
+					new ObjectName(CompilerUtilsStatisticsMXBean.OBJECT_NAME), "LanguageMergeCheckCount") >= 2L);
+		} finally {
+			CompilerUtilsMetrics.unregisterMBean();
+		}
+	}
+}
@@ -15,9 +15,19 @@
  */
 package testing.saker.compiler.utils.unit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerLanguage;
 import saker.compiler.utils.api.CompilerUtils;
 import testing.saker.SakerTest;
 import testing.saker.SakerTestCase;
@@ -33,6 +43,26 @@ public class IdentifiedOptionsMergeabilityTest extends SakerTestCase {
 		assertFalse(CompilerUtils.canMergeIdentifiers(cid("my-id"), cid("otherid")));
 		assertFalse(CompilerUtils.canMergeIdentifiers(cid("my-id"), cid("my-otherid")));
 
+		StringBuilder manyparts = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			manyparts.append("part").append(i).append('-');
+		}
+		assertTrue(CompilerUtils.canMergeIdentifiers(cid(manyparts.toString()), cid("part199-part0-part100")));
+		assertTrue(CompilerUtils.canMergeIdentifiers(cid(manyparts + "my-id"), cid("my-part150")));
+		assertFalse(CompilerUtils.canMergeIdentifiers(cid(manyparts.toString()), cid("part199-part200")));
+		assertFalse(CompilerUtils.canMergeIdentifiers(cid("part1-part2"), cid("part1-part150")));
+
+		assertTrue(CompilerUtils.canMergeIdentifiers(foreign("my", "id"), cid("id")));
+		assertTrue(CompilerUtils.canMergeIdentifiers(cid("my-id"), foreign("id")));
+		assertFalse(CompilerUtils.canMergeIdentifiers(cid("my-id"), foreign("otherid")));
+		assertEquals(foreign("id", "my").fingerprint(), cid("my-id").fingerprint());
+
+		CompilationIdentifier myid = cid("my-id");
+		assertTrue(CompilationIdentifier.valueOf(myid) == myid);
+		assertTrue(CompilationIdentifier.valueOf(foreign("My", "id")) == myid);
+		assertException(IllegalArgumentException.class, () -> CompilationIdentifier.valueOf(foreign("my-id")));
+		assertException(IllegalArgumentException.class, () -> CompilationIdentifier.valueOf(foreign("my", "i d")));
+
 		assertTrue(CompilerUtils.canMergeLanguages(null, null));
 		assertTrue(CompilerUtils.canMergeLanguages("Java", null));
 		assertTrue(CompilerUtils.canMergeLanguages("Java", "Java"));
@@ -41,9 +71,49 @@ public class IdentifiedOptionsMergeabilityTest extends SakerTestCase {
 
 		assertFalse(CompilerUtils.canMergeLanguages("java", "c++"));
 		assertFalse(CompilerUtils.canMergeLanguages(null, "Java"));
+		assertFalse(CompilerUtils.canMergeLanguages("", "Java"));
+		assertTrue(CompilerUtils.canMergeLanguages("Java", ""));
+
+		assertTrue(CompilerLanguage.valueOf("java") == CompilerLanguage.valueOf("JAVA"));
+		assertTrue(CompilerLanguage.valueOf("java") != CompilerLanguage.valueOf("c++"));
+		assertEquals(CompilerLanguage.valueOf("JaVa").getName(), "java");
+		assertTrue(CompilerUtils.canMergeCompilerLanguages(null, null));
+		assertTrue(CompilerUtils.canMergeCompilerLanguages(CompilerLanguage.valueOf("Java"), null));
+		assertTrue(CompilerUtils.canMergeCompilerLanguages(CompilerLanguage.valueOf("Java"),
+				CompilerLanguage.valueOf("JAVA")));
+		assertFalse(CompilerUtils.canMergeCompilerLanguages(CompilerLanguage.valueOf("java"),
+				CompilerLanguage.valueOf("c++")));
+		assertFalse(CompilerUtils.canMergeCompilerLanguages(null, CompilerLanguage.valueOf("java")));
+		assertException(IllegalArgumentException.class, () -> CompilerLanguage.valueOf(""));
+
+		//the names read from the stream are normalized
+		byte[] serialized = serialize(CompilerLanguage.valueOf("somelang"));
+		String serializedstr = new String(serialized, StandardCharsets.ISO_8859_1);
+		byte[] modified = serializedstr.replace("somelang", "SomeLang").getBytes(StandardCharsets.ISO_8859_1);
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(modified))) {
+			assertTrue(ois.readObject() == CompilerLanguage.valueOf("somelang"));
+		}
+	}
+
+	private static byte[] serialize(Object obj) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(obj);
+		}
+		return baos.toByteArray();
 	}
 
 	public static CompilationIdentifier cid(String id) {
 		return CompilationIdentifier.valueOf(id);
 	}
+
+	private static CompilationIdentifier foreign(String... parts) {
+		Set<String> partset = new LinkedHashSet<>(Arrays.asList(parts));
+		return new CompilationIdentifier() {
+			@Override
+			public Set<String> getParts() {
+				return partset;
+			}
+		};
+	}
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerUtils;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class IdentifierPartSuggestionsTest extends SakerTestCase {
+	//keep strong references so the identifiers are not collected and counted again
+	private static List<CompilationIdentifier> identifiers;
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		//the first query starts the tracking
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzsug", 10), Collections.emptyList());
+		identifiers = Arrays.asList(cid("zzsuggest-zzsuggestion"), cid("zzsuggest-zzsuggestion-x"),
+				cid("zzsuggest-zzsuggested"), cid("zzsuggestion-zzsuggest"), cid("zzsuggestion-y"),
+				cid("zzsugar-x"));
+		//same part set as an existing one, not counted again
+		cid("zzsuggest-zzsuggested");
+
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzsug", 10),
+				Arrays.asList("zzsuggest", "zzsuggestion", "zzsugar", "zzsuggested"));
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("ZZSUG", 2),
+				Arrays.asList("zzsuggest", "zzsuggestion"));
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzsuggestio", 10), Arrays.asList("zzsuggestion"));
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzsuggestionx", 10), Collections.emptyList());
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzsug", 0), Collections.emptyList());
+		assertTrue(CompilerUtils.getIdentifierPartSuggestions("", 1).size() == 1);
+
+		//the same part set created concurrently in different orders is counted once
+		List<CompilationIdentifier> raced = Collections.synchronizedList(new ArrayList<>());
+		identifiers = raced;
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			String id = i % 2 == 0 ? "zzrace-zzracing" : "zzracing-zzrace";
+			threads[i] = new Thread(() -> raced.add(cid(id)));
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		raced.add(cid("zzracing-x"));
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzrac", 10), Arrays.asList("zzracing", "zzrace"));
+		raced.add(cid("zzrace-y"));
+		raced.add(cid("zzrace-z"));
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzrac", 10), Arrays.asList("zzrace", "zzracing"));
+	}
+
+	private static CompilationIdentifier cid(String s) {
+		return CompilationIdentifier.valueOf(s);
+	}
+
+}
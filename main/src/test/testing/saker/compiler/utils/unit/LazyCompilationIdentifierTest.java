@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerUtils;
+import saker.compiler.utils.api.CompilerUtilsMetrics;
+import saker.compiler.utils.api.CompilerUtilsMetricsListener;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class LazyCompilationIdentifierTest extends SakerTestCase {
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		for (String s : Arrays.asList("my-id", "id-my", "my", "a-b-c-d", "MY-id", "my--id", "-my", "my-", "my-id-my",
+				"a-aa-a", "x.y-(z)-[w]@", "1-2-3-4-5-6-7-8-9-10-11-12-13-14-15-16-17-18", "z-a-m", "ab-a-b",
+				"b-ab-a", "con-x", "x.-a", "a.b-a-b.a-a(")) {
+			CompilationIdentifier lazy = CompilationIdentifier.lazyValueOf(s);
+			CompilationIdentifier eager = CompilationIdentifier.valueOf(s);
+			assertEquals(lazy.toString(), eager.toString());
+			assertEquals(lazy.hashCode(), eager.hashCode());
+			assertEquals(lazy, eager);
+			assertEquals(eager, lazy);
+			assertEquals(lazy.getParts(), eager.getParts());
+			assertEquals(lazy.toCanonicalString(), eager.toCanonicalString());
+			assertEquals(lazy.fingerprint(), eager.fingerprint());
+			assertTrue(CompilerUtils.canMergeIdentifiers(lazy, eager));
+			assertTrue(CompilerUtils.canMergeIdentifiers(eager, lazy));
+			assertEquals(CompilerUtils.getOutputDirectoryName(lazy), CompilerUtils.getOutputDirectoryName(eager));
+		}
+		assertEquals(CompilationIdentifier.lazyValueOf("my-id"), CompilationIdentifier.lazyValueOf("id-my"));
+		assertEquals(CompilationIdentifier.lazyValueOf("my-id"), CompilationIdentifier.valueOf("id-my"));
+		assertNotEquals(CompilationIdentifier.lazyValueOf("my-id"), CompilationIdentifier.lazyValueOf("my-idx"));
+		assertNotEquals(CompilationIdentifier.lazyValueOf("my-id"), CompilationIdentifier.valueOf("my"));
+		assertTrue(CompilerUtils.canMergeIdentifiers(CompilationIdentifier.lazyValueOf("my-id"),
+				CompilationIdentifier.lazyValueOf("id")));
+		assertFalse(CompilerUtils.canMergeIdentifiers(CompilationIdentifier.lazyValueOf("my"),
+				CompilationIdentifier.lazyValueOf("id")));
+
+		CompilationIdentifier lazy = CompilationIdentifier.lazyValueOf("my-id");
+		assertTrue(CompilationIdentifier.valueOf(lazy) == lazy);
+		CompilationIdentifier eagermyid = CompilationIdentifier.valueOf("my-id");
+		assertTrue(CompilationIdentifier.concat(lazy, CompilationIdentifier.valueOf("id")) == eagermyid);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(lazy);
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+			assertTrue(ois.readObject() == eagermyid);
+		}
+
+		assertException(IllegalArgumentException.class, () -> CompilationIdentifier.lazyValueOf(""));
+		assertException(IllegalArgumentException.class, () -> CompilationIdentifier.lazyValueOf("-"));
+		assertException(IllegalArgumentException.class, () -> CompilationIdentifier.lazyValueOf("my-i d"));
+
+		//the resolution of a lazy identifier records the usage of its parts, which shows if it was resolved
+		CompilerUtils.getIdentifierPartSuggestions("zzlazy", 1);
+		CompilationIdentifier unresolved = CompilationIdentifier.lazyValueOf("zzlazyunresolved-x");
+		CompilationIdentifier eagerother = CompilationIdentifier.valueOf("zzlazyother-x");
+		assertNotEquals(unresolved.hashCode(), eagerother.hashCode());
+		assertFalse(eagerother.equals(unresolved));
+		assertTrue(CompilationIdentifier.valueOf("zzlazysame-x")
+				.equals(CompilationIdentifier.lazyValueOf("zzlazysame-x")));
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzlazyunresolved", 1), Collections.emptyList());
+		unresolved.getParts();
+		assertEquals(CompilerUtils.getIdentifierPartSuggestions("zzlazyunresolved", 1),
+				Arrays.asList("zzlazyunresolved"));
+
+		AtomicInteger parsed = new AtomicInteger();
+		CompilerUtilsMetricsListener listener = new CompilerUtilsMetricsListener() {
+			@Override
+			public void identifierParsed(long nanos) {
+				parsed.incrementAndGet();
+			}
+		};
+		CompilerUtilsMetrics.addListener(listener);
+		try {
+			CompilationIdentifier.lazyValueOf("lazy-parse-reported");
+		} finally {
+			assertTrue(CompilerUtilsMetrics.removeListener(listener));
+		}
+		assertTrue(parsed.get() >= 1);
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.util.Map;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.MergeDecisionCache;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class MergeDecisionCacheTest extends SakerTestCase {
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		MergeDecisionCache cache = new MergeDecisionCache(4);
+		assertEquals(cache.getCapacity(), 4);
+
+		assertTrue(cache.canMerge(cid("my-id"), null, cid("my"), (String) null));
+		assertTrue(cache.canMerge(cid("my-id"), null, cid("my"), (String) null));
+		assertEquals(cache.size(), 1);
+		assertFalse(cache.canMerge(cid("my"), null, cid("my-id"), (String) null));
+		assertTrue(cache.canMerge(null, null, null, (String) null));
+		assertFalse(cache.canMerge(null, null, cid("my"), (String) null));
+		assertTrue(cache.canMerge(cid("my"), "java", null, (String) null));
+		assertTrue(cache.canMerge(cid("my"), "java", cid("my"), "JAVA"));
+		assertFalse(cache.canMerge(cid("my"), null, cid("my"), "java"));
+		assertFalse(cache.canMerge(cid("my"), "c", cid("my"), "java"));
+		assertTrue(cache.canMerge(cid("my"), "Java", cid("my"), ""));
+		assertEquals(cache.size(), 4);
+
+		//the results are correct after evictions
+		for (int i = 0; i < 3; i++) {
+			assertTrue(cache.canMerge(cid("my-id"), null, cid("my"), (String) null));
+			assertFalse(cache.canMerge(cid("my"), null, cid("my-id"), (String) null));
+			assertTrue(cache.canMerge(cid("my"), "java", cid("my"), "JAVA"));
+			assertFalse(cache.canMerge(cid("my"), "c", cid("my"), "java"));
+			assertFalse(cache.canMerge(cid("x"), "c", cid("y"), "c"));
+			assertEquals(cache.size(), 4);
+		}
+
+		cache.clear();
+		assertEquals(cache.size(), 0);
+		assertTrue(cache.canMerge(cid("my-id"), null, cid("my"), (String) null));
+		assertEquals(cache.size(), 1);
+
+		assertException(IllegalArgumentException.class, () -> new MergeDecisionCache(0));
+
+		//segmented cache, the size stays bounded and the results are correct
+		MergeDecisionCache segmented = new MergeDecisionCache(1000);
+		assertEquals(segmented.getCapacity(), 1000);
+		for (int i = 0; i < 3000; i++) {
+			assertTrue(segmented.canMerge(cid("t" + i + "-x"), null, cid("t" + i), (String) null));
+			assertFalse(segmented.canMerge(cid("t" + i), null, cid("t" + i + "-x"), (String) null));
+		}
+		assertTrue(segmented.size() <= 1000);
+		assertTrue(segmented.size() > 0);
+		segmented.clear();
+		assertEquals(segmented.size(), 0);
+	}
+
+	private static CompilationIdentifier cid(String s) {
+		return CompilationIdentifier.valueOf(s);
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.BitSet;
+import java.util.Map;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.MergeRelationSnapshot;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class MergeRelationSnapshotTest extends SakerTestCase {
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		MergeRelationSnapshot prev = MergeRelationSnapshot.builder().addTarget(cid("main-debug"), "c")
+				.addTarget(cid("main-release"), "c").addTarget(cid("test"), "cpp").addTarget(null, null)
+				.addOptions(cid("debug"), null).addOptions(cid("main"), "c").build();
+
+		assertEquals(prev.getAffectedTargets(null), bits(0, 1, 2, 3));
+		assertEquals(prev.getAffectedTargets(prev), bits());
+
+		//the order of the options doesn't matter
+		MergeRelationSnapshot reordered = MergeRelationSnapshot.builder().addTarget(cid("main-debug"), "c")
+				.addTarget(cid("main-release"), "C").addTarget(cid("test"), "cpp").addTarget(null, null)
+				.addOptions(cid("main"), "c").addOptions(cid("debug"), "").build();
+		assertEquals(reordered.getAffectedTargets(prev), bits());
+
+		//debug options removed
+		MergeRelationSnapshot cur = MergeRelationSnapshot.builder().addTarget(cid("main-debug"), "c")
+				.addTarget(cid("main-release"), "c").addTarget(cid("test"), "cpp").addTarget(null, null)
+				.addOptions(cid("main"), "c").build();
+		assertEquals(cur.getAffectedTargets(prev), bits(0));
+		assertEquals(prev.getAffectedTargets(cur), bits(0));
+
+		//language specific options added, new target
+		cur = MergeRelationSnapshot.builder().addTarget(cid("main-debug"), "c").addTarget(cid("main-release"), "c")
+				.addTarget(cid("test"), "cpp").addTarget(null, null).addTarget(cid("test-debug"), "cpp")
+				.addOptions(cid("debug"), null).addOptions(cid("main"), "c").addOptions(cid("test"), "cpp")
+				.addOptions(null, "c").build();
+		assertEquals(cur.getAffectedTargets(prev), bits(0, 1, 2, 4));
+
+		//duplicate options blocks are counted separately
+		MergeRelationSnapshot duplicated = MergeRelationSnapshot.builder().addTarget(cid("main-debug"), "c")
+				.addTarget(cid("main-release"), "c").addTarget(cid("test"), "cpp").addTarget(null, null)
+				.addOptions(cid("debug"), null).addOptions(cid("main"), "c").addOptions(cid("debug"), null).build();
+		assertEquals(duplicated.getAffectedTargets(prev), bits(0));
+		assertEquals(prev.getAffectedTargets(duplicated), bits(0));
+		assertEquals(duplicated.getAffectedTargets(duplicated), bits());
+		MergeRelationSnapshot reduplicated = MergeRelationSnapshot.builder().addTarget(cid("main-debug"), "c")
+				.addTarget(cid("main-release"), "c").addTarget(cid("test"), "cpp").addTarget(null, null)
+				.addOptions(cid("debug"), null).addOptions(cid("debug"), null).addOptions(cid("main"), "C").build();
+		assertEquals(reduplicated.getAffectedTargets(duplicated), bits());
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(cur);
+		}
+		MergeRelationSnapshot read;
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+			read = (MergeRelationSnapshot) ois.readObject();
+		}
+		assertEquals(read.getTargetCount(), 5);
+		assertEquals(read.getOptionsCount(), 4);
+		assertEquals(read.getTargetIdentifier(4), cid("test-debug"));
+		assertEquals(read.getTargetLanguage(4).getName(), "cpp");
+		assertEquals(read.getAffectedTargets(cur), bits());
+		assertEquals(read.getAffectedTargets(prev), bits(0, 1, 2, 4));
+	}
+
+	private static BitSet bits(int... indices) {
+		BitSet result = new BitSet();
+		for (int i : indices) {
+			result.set(i);
+		}
+		return result;
+	}
+
+	private static CompilationIdentifier cid(String s) {
+		return CompilationIdentifier.valueOf(s);
+	}
+
+}
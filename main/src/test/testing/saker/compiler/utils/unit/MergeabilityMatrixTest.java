@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerUtils;
+import saker.compiler.utils.api.MergeabilityMatrix;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class MergeabilityMatrixTest extends SakerTestCase {
+	private static final String[] PARTS = { "debug", "release", "x86", "x64", "arm", "main", "test", "lib" };
+	private static final String[] LANGUAGES = { null, "", "c", "C++", "c++", "Java" };
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		Random random = new Random(12345);
+		//small enough to compute on the caller thread
+		assertEquivalence(random, 20, 30);
+		//large enough to compute in parallel
+		assertEquivalence(random, 400, 300);
+
+		MergeabilityMatrix empty = CompilerUtils.computeMergeabilityMatrix(new ArrayList<>(), new ArrayList<>());
+		assertEquals(empty.getTargetCount(), 0);
+		assertEquals(empty.getOptionsCount(), 0);
+	}
+
+	private static void assertEquivalence(Random random, int targetcount, int optionscount) {
+		List<CompilationIdentifier> targetids = new ArrayList<>();
+		List<String> targetlangs = new ArrayList<>();
+		List<CompilationIdentifier> optionsids = new ArrayList<>();
+		List<String> optionslangs = new ArrayList<>();
+		for (int i = 0; i < targetcount; i++) {
+			targetids.add(randomIdentifier(random));
+			targetlangs.add(LANGUAGES[random.nextInt(LANGUAGES.length)]);
+		}
+		for (int i = 0; i < optionscount; i++) {
+			optionsids.add(randomIdentifier(random));
+			optionslangs.add(LANGUAGES[random.nextInt(LANGUAGES.length)]);
+		}
+		MergeabilityMatrix matrix = CompilerUtils.computeMergeabilityMatrix(targetids, targetlangs, optionsids,
+				optionslangs);
+		MergeabilityMatrix idmatrix = CompilerUtils.computeMergeabilityMatrix(targetids, optionsids);
+		assertEquals(matrix.getTargetCount(), targetcount);
+		assertEquals(matrix.getOptionsCount(), optionscount);
+		for (int t = 0; t < targetcount; t++) {
+			BitSet expected = new BitSet();
+			for (int o = 0; o < optionscount; o++) {
+				boolean idmerge = CompilerUtils.canMergeIdentifiers(targetids.get(t), optionsids.get(o));
+				boolean merge = idmerge
+						&& CompilerUtils.canMergeLanguages(targetlangs.get(t), optionslangs.get(o));
+				assertEquals(matrix.canMerge(t, o), merge);
+				assertEquals(idmatrix.canMerge(t, o), idmerge);
+				if (merge) {
+					expected.set(o);
+				}
+			}
+			assertEquals(matrix.getMergeableOptions(t), expected);
+		}
+	}
+
+	private static CompilationIdentifier randomIdentifier(Random random) {
+		int count = random.nextInt(4);
+		if (count == 0) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(PARTS[random.nextInt(PARTS.length)]).append('-');
+		}
+		return CompilationIdentifier.valueOf(sb.toString());
+	}
+}
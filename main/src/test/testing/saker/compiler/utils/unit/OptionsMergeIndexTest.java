@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.CompilerUtils;
+import saker.compiler.utils.api.OptionsMergeIndex;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class OptionsMergeIndexTest extends SakerTestCase {
+	private static final String[] IDENTIFIERS = { null, "my", "id", "my-id", "other", "my-other", "x-y-z", "x",
+			"id-x" };
+	private static final String[] LANGUAGES = { null, "Java", "c++", "java" };
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		List<CompilationIdentifier> ids = new ArrayList<>();
+		for (String id : IDENTIFIERS) {
+			ids.add(cid(id));
+		}
+		//foreign identifier without parts
+		ids.add(Collections::emptySet);
+
+		OptionsMergeIndex.Builder<Integer> builder = OptionsMergeIndex.builder();
+		List<CompilationIdentifier> optionids = new ArrayList<>();
+		List<String> optionlangs = new ArrayList<>();
+		int i = 0;
+		for (CompilationIdentifier id : ids) {
+			for (String lang : LANGUAGES) {
+				optionids.add(id);
+				optionlangs.add(lang);
+				builder.add(id, lang, i++);
+			}
+		}
+		OptionsMergeIndex<Integer> index = builder.build();
+		assertEquals(index.size(), i);
+
+		for (CompilationIdentifier targetid : ids) {
+			for (String targetlang : LANGUAGES) {
+				List<Integer> expected = new ArrayList<>();
+				for (int j = 0; j < optionids.size(); j++) {
+					if (CompilerUtils.canMergeIdentifiers(targetid, optionids.get(j))
+							&& CompilerUtils.canMergeLanguages(targetlang, optionlangs.get(j))) {
+						expected.add(j);
+					}
+				}
+				assertEquals(index.getMergeable(targetid, targetlang), expected);
+			}
+		}
+
+		OptionsMergeIndex<String> strindex = OptionsMergeIndex.<String>builder().add(cid("b"), null, "b")
+				.add(cid("a-b"), "java", "ab").add(null, null, "all").build();
+		assertEquals(strindex.getMergeable(cid("a-b-c"), "Java"), Arrays.asList("b", "ab", "all"));
+		assertEquals(strindex.getMergeable(cid("a-b-c"), null), Arrays.asList("b", "all"));
+		assertEquals(strindex.getMergeable(null, null), Arrays.asList("all"));
+	}
+
+	private static CompilationIdentifier cid(String id) {
+		return id == null ? null : CompilationIdentifier.valueOf(id);
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.compiler.utils.unit;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import saker.compiler.utils.api.CompilationIdentifier;
+import saker.compiler.utils.api.OptionsResolver;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class OptionsResolverTest extends SakerTestCase {
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		OptionsResolver<String> resolver = OptionsResolver.<String> builder()
+				.add(cid("main-debug"), "c", "main-debug/c")
+				.add(cid("debug"), null, "debug")
+				.add(cid("main-debug"), null, "main-debug")
+				.add(null, "c", "/c")
+				.add(cid("main"), "", "main")
+				.add(null, null, "all")
+				.add(cid("debug"), "cpp", "debug/cpp")
+				.add(cid("main"), null, "main2")
+				.build();
+		assertEquals(resolver.size(), 8);
+
+		assertEquals(resolver.resolve(cid("main-debug"), "c"),
+				Arrays.asList("all", "/c", "debug", "main", "main2", "main-debug", "main-debug/c"));
+		assertEquals(resolver.resolve(cid("main-debug"), "cpp"),
+				Arrays.asList("all", "debug", "main", "main2", "debug/cpp", "main-debug"));
+		assertEquals(resolver.resolve(cid("main-release"), null), Arrays.asList("all", "main", "main2"));
+		assertEquals(resolver.resolve(null, "C"), Arrays.asList("all", "/c"));
+		assertEquals(OptionsResolver.builder().build().resolve(cid("main"), null), Collections.emptyList());
+	}
+
+	private static CompilationIdentifier cid(String s) {
+		return CompilationIdentifier.valueOf(s);
+	}
+
+}